@@ -0,0 +1,63 @@
+package com.chaching.backend.benchmark;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.service.MoneyTotals;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Dashboard-style totals per category and per month over one user's history
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AggregationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private List<Transaction> transactions;
+    private long[] cents;
+
+    @Setup
+    public void setUp() {
+        transactions = BenchmarkData.transactions(size);
+        cents = transactions.stream().mapToLong(transaction -> transaction.getAmount().cents()).toArray();
+    }
+
+    @Benchmark
+    public MoneyTotals<String> totalsByCategory() {
+        MoneyTotals<String> totals = new MoneyTotals<>(BenchmarkData.CATEGORIES.length);
+        for (Transaction transaction : transactions) {
+            totals.add(transaction.getCategory(), Money.centsOf(transaction.getAmount()));
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public MoneyTotals<YearMonth> totalsByMonth() {
+        MoneyTotals<YearMonth> totals = new MoneyTotals<>(64);
+        for (Transaction transaction : transactions) {
+            totals.add(YearMonth.from(transaction.getDate()), Money.centsOf(transaction.getAmount()));
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public long grandTotal() {
+        return MoneyTotals.sum(cents, cents.length);
+    }
+
+    // The boxed-double stream the client-side code effectively does, for comparison
+    @Benchmark
+    public Map<String, Double> boxedStreamByCategory() {
+        return transactions.stream().collect(Collectors.groupingBy(Transaction::getCategory,
+                Collectors.summingDouble(transaction -> transaction.getAmount().toDecimal().doubleValue())));
+    }
+}
@@ -0,0 +1,66 @@
+package com.chaching.backend.benchmark;
+
+import com.chaching.backend.config.CustomUserDetailsService;
+import com.chaching.backend.config.JwtAuthenticationFilter;
+import com.chaching.backend.model.User;
+import com.chaching.backend.repository.UserRepository;
+import com.chaching.backend.security.UserDetailsCache;
+import com.chaching.backend.service.JwtTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// The whole per-request auth path: header parsing, token verification and principal construction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean statelessPrincipal;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setUp() {
+        User user = BenchmarkData.user();
+        JwtTokenService jwtTokenService = BenchmarkData.jwtTokenService();
+
+        // Stands in for the database so the benchmark measures the filter, not JDBC
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(), new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> method.getName().equals("findByEmail") ? Optional.of(user) : null);
+
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(
+                userRepository, new UserDetailsCache(Duration.ofSeconds(30), 10_000));
+        filter = new JwtAuthenticationFilter(jwtTokenService, userDetailsService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", statelessPrincipal);
+
+        authorization = "Bearer " + jwtTokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public Object authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/transactions");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.chaching.backend.benchmark;
+
+import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.User;
+import com.chaching.backend.service.JwtTokenService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic fixtures shared by the benchmarks
+final class BenchmarkData {
+
+    static final String[] CATEGORIES = {"Food", "Rent", "Transport", "Shopping", "Utilities", "Health", "Travel", "Other"};
+
+    private BenchmarkData() {
+    }
+
+    static JwtTokenService jwtTokenService() {
+        JwtTokenService service = new JwtTokenService();
+        ReflectionTestUtils.setField(service, "secret", "S9kf!pZ29x$kL3gM8^vqY7bT!hN#Q2rLzA*BwEfU");
+        ReflectionTestUtils.setField(service, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 10_000L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("bench@example.com");
+        user.setFullName("Bench Mark");
+        user.setProfilePicture("https://example.com/bench.png");
+        return user;
+    }
+
+    static List<Transaction> transactions(int count) {
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(new Transaction((long) i + 1, 42L, Money.ofCents(random.nextLong(100, 50_000)),
+                    "Merchant " + random.nextInt(500), start.plusDays(random.nextInt(1_000)),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], null));
+        }
+        return transactions;
+    }
+
+    static List<Goal> goals(int count) {
+        List<Goal> goals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            goals.add(new Goal((long) i + 1, 42L, "Goal " + i, Money.ofCents(1_000_000), Money.ofCents(i * 1_000L), null));
+        }
+        return goals;
+    }
+
+    static List<Budget> budgets(int count) {
+        List<Budget> budgets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            budgets.add(new Budget((long) i + 1, 42L, Money.ofCents(50_000), CATEGORIES[i % CATEGORIES.length], null));
+        }
+        return budgets;
+    }
+}
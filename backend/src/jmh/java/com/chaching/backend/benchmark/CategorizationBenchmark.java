@@ -0,0 +1,73 @@
+package com.chaching.backend.benchmark;
+
+import com.chaching.backend.service.KeywordMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Categorizing one description against rule sets of growing size; the automaton's cost should stay flat
+// while the loop over rules grows with them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CategorizationBenchmark {
+
+    private static final String[] DESCRIPTIONS = {
+        "POS PURCHASE STARBUCKS STORE 1234 SEATTLE WA",
+        "Amazon Marketplace order 112-0039",
+        "Monthly rent transfer",
+        "UBER *TRIP HELP.UBER.COM",
+        "Card payment 8811 unknown merchant"
+    };
+
+    @Param({"10", "1000", "10000"})
+    public int rules;
+
+    private List<String[]> keywords;
+    private KeywordMatcher matcher;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keywords = new ArrayList<>();
+        keywords.add(new String[]{"starbucks", "Food"});
+        keywords.add(new String[]{"uber", "Transport"});
+        while (keywords.size() < rules) {
+            StringBuilder keyword = new StringBuilder();
+            for (int i = 0, length = 5 + random.nextInt(8); i < length; i++) {
+                keyword.append((char) ('a' + random.nextInt(26)));
+            }
+            keywords.add(new String[]{keyword.toString(), "Category " + random.nextInt(20)});
+        }
+        matcher = new KeywordMatcher(keywords.stream().map(k -> new KeywordMatcher.Keyword(k[0], k[1])).toList());
+    }
+
+    private String nextDescription() {
+        next = (next + 1) % DESCRIPTIONS.length;
+        return DESCRIPTIONS[next];
+    }
+
+    @Benchmark
+    public String automaton() {
+        return matcher.match(nextDescription());
+    }
+
+    // One contains() per rule, for comparison
+    @Benchmark
+    public String loopOverRules() {
+        String description = nextDescription().toLowerCase(Locale.ROOT);
+        for (String[] keyword : keywords) {
+            if (description.contains(keyword[0])) {
+                return keyword[1];
+            }
+        }
+        return null;
+    }
+}
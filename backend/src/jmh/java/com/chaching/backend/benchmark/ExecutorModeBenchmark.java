@@ -0,0 +1,85 @@
+package com.chaching.backend.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// A burst of requests shaped like a login: a short database round trip, a blocking call to the
+// identity provider and a password hash. Compares Tomcat's default 200 platform threads with a
+// virtual thread per request, both in front of the same fixed-size connection pool.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExecutorModeBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"2000"})
+    public int burst;
+
+    @Param({"2"})
+    public int databaseMillis;
+
+    @Param({"20"})
+    public int remoteMillis;
+
+    private ExecutorService executor;
+    private Semaphore connections;
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        executor = mode.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        connections = new Semaphore(POOL_SIZE, true);
+        // Low cost keeps the hash from drowning out the blocking the benchmark is about
+        encoder = new BCryptPasswordEncoder(4);
+        hash = encoder.encode("correct horse battery staple");
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public int loginBurst() throws Exception {
+        List<Future<Boolean>> requests = new ArrayList<>(burst);
+        for (int i = 0; i < burst; i++) {
+            requests.add(executor.submit(this::login));
+        }
+        int succeeded = 0;
+        for (Future<Boolean> request : requests) {
+            if (request.get()) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    private boolean login() throws InterruptedException {
+        connections.acquire();
+        try {
+            Thread.sleep(databaseMillis);
+        } finally {
+            connections.release();
+        }
+        Thread.sleep(remoteMillis);
+        return encoder.matches("correct horse battery staple", hash);
+    }
+}
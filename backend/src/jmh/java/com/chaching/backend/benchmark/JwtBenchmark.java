@@ -0,0 +1,51 @@
+package com.chaching.backend.benchmark;
+
+import com.chaching.backend.model.User;
+import com.chaching.backend.service.JwtTokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtBenchmark {
+
+    private JwtTokenService jwtTokenService;
+    private JwtParser uncachedParser;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenService = BenchmarkData.jwtTokenService();
+        uncachedParser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor("S9kf!pZ29x$kL3gM8^vqY7bT!hN#Q2rLzA*BwEfU".getBytes()))
+                .build();
+        user = BenchmarkData.user();
+        token = jwtTokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenService.generateToken(user);
+    }
+
+    // Repeat requests with the same token: hash lookup in the verified-claims cache
+    @Benchmark
+    public Claims verifyCachedToken() {
+        return jwtTokenService.verifyToken(token);
+    }
+
+    // What every request paid before the cache: full signature check and claims parse
+    @Benchmark
+    public Claims verifyWithoutCache() {
+        return uncachedParser.parseClaimsJws(token).getBody();
+    }
+}
@@ -0,0 +1,61 @@
+package com.chaching.backend.benchmark;
+
+import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializing the list endpoints' payloads with the same mapper settings Spring Boot uses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private List<Transaction> transactions;
+    private List<Goal> goals;
+    private List<Budget> budgets;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        objectMapper = switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        transactions = BenchmarkData.transactions(size);
+        goals = BenchmarkData.goals(Math.min(size, 1_000));
+        budgets = BenchmarkData.budgets(Math.min(size, 1_000));
+    }
+
+    @Benchmark
+    public byte[] transactions() throws Exception {
+        return objectMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] goals() throws Exception {
+        return objectMapper.writeValueAsBytes(goals);
+    }
+
+    @Benchmark
+    public byte[] budgets() throws Exception {
+        return objectMapper.writeValueAsBytes(budgets);
+    }
+}
@@ -2,29 +2,49 @@ package com.chaching.backend.config;
 
 import com.chaching.backend.model.User;
 import com.chaching.backend.service.UserService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.Map;
 
+@Slf4j
 @Service
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     @Autowired
     private UserService userService;
 
+    // The user-info call blocks the request thread, so bound it instead of relying on the
+    // default client's infinite timeouts; the JDK client also parks virtual threads cleanly
+    public CustomOAuth2UserService(@Value("${oauth2.user-info.connect-timeout:3s}") Duration connectTimeout,
+                                   @Value("${oauth2.user-info.read-timeout:5s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        setRestOperations(restTemplate);
+    }
+
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) {
         // Load user details from the OAuth provider (Google)
         OAuth2User oAuth2User = super.loadUser(userRequest);
         Map<String, Object> attributes = oAuth2User.getAttributes();
 
-        // You can log or process user details here
-        System.out.println("User Info: " + attributes);
-
         // Extract user details from the attributes (assuming Google provides them)
         String email = (String) attributes.get("email");
         String name = (String) attributes.get("name");
@@ -32,9 +52,7 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
         // Call findOrCreateUser with email, name, and profile picture
         User user = userService.findOrCreateUser(email, name, picture);
-
-        // You can also log or process the user as needed
-        System.out.println("User Created or Found: " + user);
+        log.debug("Google user info loaded for user {}", user.getId());
 
         // Return the OAuth2User (this is the user that Spring Security will use)
         return oAuth2User;
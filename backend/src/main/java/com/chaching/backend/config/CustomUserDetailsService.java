@@ -2,6 +2,7 @@ package com.chaching.backend.config;
 
 import com.chaching.backend.model.User;
 import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.security.UserDetailsCache;
 import com.chaching.backend.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -15,11 +16,14 @@ import lombok.RequiredArgsConstructor;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-            .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
-        return new CustomUserDetails(user);
+        return userDetailsCache.get(email, key -> {
+            User user = userRepository.findByEmail(key)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + key));
+            return new CustomUserDetails(user);
+        });
     }
 }
@@ -0,0 +1,152 @@
+package com.chaching.backend.config;
+
+import com.chaching.backend.model.Transaction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// Schema fix-ups that ddl-auto=update cannot do on its own. They run once every bean exists, so after Hibernate has
+// updated the schema but before the web server starts and the scheduled jobs are registered: no request or job
+// sees a row that has not been fixed up yet. Only the search index, which search does without while it builds,
+// is left until the application is running.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DatabaseInitializer implements SmartInitializingSingleton, ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${currency.base:USD}")
+    private String baseCurrency;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        alignSequence("transaction_seq", "transaction", Transaction.ID_ALLOCATION_SIZE);
+
+        backfillCents("transaction", "amount", "amount_cents");
+        backfillCents("budget", "amount", "amount_cents");
+        backfillCents("goal", "target_amount", "target_amount_cents");
+        backfillCents("goal", "current_amount", "current_amount_cents");
+        backfillCents("monthly_spend", "total", "total_cents");
+        keyRollupsByCurrency();
+
+        createChangeTracking();
+        trackChanges("transaction");
+        trackChanges("budget");
+        trackChanges("goal");
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        createSearchIndex();
+    }
+
+    // Trigram index for transaction search. user_id leads, so a search only reads the searching user's entries
+    // and its cost follows the size of their history, not everyone's. Built concurrently so writes carry on.
+    private void createSearchIndex() {
+        String index = "idx_transaction_user_description_trgm";
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gin");
+            dropIfInvalid(index);
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index + " " +
+                    "ON transaction USING gin (user_id, description gin_trgm_ops)");
+        } catch (DataAccessException e) {
+            log.warn("Transaction search index not created, it needs the pg_trgm and btree_gin extensions: {}", e.getMessage());
+        }
+    }
+
+    // A concurrent build that fails part way leaves an invalid index behind, which IF NOT EXISTS would then keep
+    // forever while queries ignore it. An index another instance is still building is invalid too; that one is left alone.
+    private void dropIfInvalid(String index) {
+        Boolean valid = jdbcTemplate.query("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                rs -> rs.next() ? rs.getBoolean(1) : null, index);
+        Integer building = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_stat_progress_create_index WHERE index_relid = to_regclass(?)", Integer.class, index);
+        if (Boolean.FALSE.equals(valid) && building != null && building == 0) {
+            log.warn("Dropping invalid index {} to build it again", index);
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+        }
+    }
+
+    // Every insert and update stamps the row with the next change_seq and the id of the database transaction that
+    // wrote it; every delete leaves a tombstone stamped the same way, except deletes by the archiver, which only
+    // move rows out of the table. /api/sync pages through these stamps.
+    private void createChangeTracking() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS change_seq");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sync_tombstone (" +
+                "change_seq BIGINT NOT NULL, change_xid BIGINT NOT NULL, user_id BIGINT, " +
+                "entity VARCHAR(32) NOT NULL, entity_id BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_sync_tombstone_user_change " +
+                "ON sync_tombstone (user_id, change_xid, change_seq)");
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION stamp_change() RETURNS trigger LANGUAGE plpgsql AS $$
+                BEGIN
+                    NEW.change_seq := nextval('change_seq');
+                    NEW.change_xid := pg_current_xact_id()::text::bigint;
+                    RETURN NEW;
+                END $$""");
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION record_tombstone() RETURNS trigger LANGUAGE plpgsql AS $$
+                BEGIN
+                    IF current_setting('chaching.archiving', true) = 'on' THEN
+                        RETURN OLD;
+                    END IF;
+                    INSERT INTO sync_tombstone (change_seq, change_xid, user_id, entity, entity_id)
+                    VALUES (nextval('change_seq'), pg_current_xact_id()::text::bigint, OLD.user_id, TG_TABLE_NAME, OLD.id);
+                    RETURN OLD;
+                END $$""");
+    }
+
+    private void trackChanges(String table) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS change_seq BIGINT, " +
+                "ADD COLUMN IF NOT EXISTS change_xid BIGINT");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_user_change " +
+                "ON " + table + " (user_id, change_xid, change_seq)");
+        jdbcTemplate.execute("CREATE OR REPLACE TRIGGER " + table + "_stamp_change BEFORE INSERT OR UPDATE ON " + table +
+                " FOR EACH ROW EXECUTE FUNCTION stamp_change()");
+        jdbcTemplate.execute("CREATE OR REPLACE TRIGGER " + table + "_record_tombstone AFTER DELETE ON " + table +
+                " FOR EACH ROW EXECUTE FUNCTION record_tombstone()");
+
+        // Rows from before tracking existed; the trigger stamps them
+        jdbcTemplate.update("UPDATE " + table + " SET change_seq = 0 WHERE change_seq IS NULL");
+    }
+
+    // Rollups gained a currency in their key. Every rollup from before then is in the base currency, and the old
+    // key would stop the same month and category from having one row per currency.
+    private void keyRollupsByCurrency() {
+        jdbcTemplate.execute("ALTER TABLE monthly_spend DROP CONSTRAINT IF EXISTS uk_monthly_spend_user_month_category");
+        jdbcTemplate.update("UPDATE monthly_spend SET currency = ? WHERE currency IS NULL", baseCurrency.trim().toUpperCase(Locale.ROOT));
+    }
+
+    // Tables that started out on IDENTITY already hold ids a freshly created sequence knows nothing about
+    private void alignSequence(String sequence, String table, int allocationSize) {
+        Long next = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+
+        // The pooled optimizer hands out (next - allocationSize, next]
+        if (next - allocationSize < maxId) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + allocationSize + 1));
+        }
+    }
+
+    // Amounts used to live in double precision columns; copy whatever has not been converted yet into the cents column
+    private void backfillCents(String table, String legacyColumn, String centsColumn) {
+        Integer legacy = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+                Integer.class, table, legacyColumn);
+
+        if (legacy != null && legacy > 0) {
+            jdbcTemplate.update("UPDATE " + table + " SET " + centsColumn + " = ROUND(" + legacyColumn + " * 100) " +
+                    "WHERE " + centsColumn + " IS NULL AND " + legacyColumn + " IS NOT NULL");
+        }
+    }
+}
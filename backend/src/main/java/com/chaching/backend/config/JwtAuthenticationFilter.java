@@ -1,25 +1,48 @@
 package com.chaching.backend.config;
 
+import com.chaching.backend.security.CustomUserDetails;
 import com.chaching.backend.service.JwtTokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenService jwtTokenService;
     private final CustomUserDetailsService customUserDetailsService;
+    private final Timer anonymousTimer;
+    private final Timer rejectedTimer;
+    private final Timer authenticatedTimer;
+
+    // When on, the principal comes from the token's own claims and the database is only asked for tokens without them
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
+
+    public JwtAuthenticationFilter(JwtTokenService jwtTokenService,
+                                   CustomUserDetailsService customUserDetailsService,
+                                   MeterRegistry meterRegistry) {
+        this.jwtTokenService = jwtTokenService;
+        this.customUserDetailsService = customUserDetailsService;
+        this.anonymousTimer = meterRegistry.timer("chaching.auth.filter", "outcome", "anonymous");
+        this.rejectedTimer = meterRegistry.timer("chaching.auth.filter", "outcome", "rejected");
+        this.authenticatedTimer = meterRegistry.timer("chaching.auth.filter", "outcome", "authenticated");
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -27,33 +50,64 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
+        long start = System.nanoTime();
+        Timer outcome = authenticate(request);
+        outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        filterChain.doFilter(request, response);
+    }
+
+    // Returns the timer for how the request ended up: no bearer token, an unusable one, or a signed-in user
+    private Timer authenticate(HttpServletRequest request) {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            filterChain.doFilter(request, response);
-            return;
+            return anonymousTimer;
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtTokenService.extractEmail(jwt);
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            var userDetails = customUserDetailsService.loadUserByUsername(userEmail);
+        // Signature and expiry are checked here, once; an unusable token just leaves the request anonymous
+        final Claims claims;
+        try {
+            claims = jwtTokenService.verifyToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return rejectedTimer;
+        }
+        userEmail = claims.getSubject();
+        if (userEmail == null) {
+            return rejectedTimer;
+        }
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            return authenticatedTimer;
+        }
+
+        var userDetails = resolveUser(claims, userEmail);
+        if (!userEmail.equals(userDetails.getUsername())) {
+            return rejectedTimer;
+        }
+
+        var authToken = new UsernamePasswordAuthenticationToken(
+            userDetails, null, userDetails.getAuthorities()
+        );
+        authToken.setDetails(
+            new WebAuthenticationDetailsSource().buildDetails(request)
+        );
 
-            if (jwtTokenService.validateToken(jwt, userDetails)) {
-                var authToken = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities()
-                );
-                authToken.setDetails(
-                    new WebAuthenticationDetailsSource().buildDetails(request)
-                );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        return authenticatedTimer;
+    }
 
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+    private UserDetails resolveUser(Claims claims, String email) {
+        if (statelessPrincipal) {
+            Long id = claims.get("id", Long.class);
+            if (id != null) {
+                return new CustomUserDetails(id, email,
+                    claims.get("fullName", String.class), claims.get("picture", String.class));
             }
         }
-
-        filterChain.doFilter(request, response);
+        return customUserDetailsService.loadUserByUsername(email);
     }
 }
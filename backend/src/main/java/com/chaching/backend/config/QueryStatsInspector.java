@@ -0,0 +1,17 @@
+package com.chaching.backend.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Remembers the SQL about to run so a slow execution can be reported with its statement; never rewrites it.
+// Registered through hibernate.session_factory.statement_inspector.
+public class QueryStatsInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (stats != null) {
+            stats.sqlPrepared(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,41 @@
+package com.chaching.backend.config;
+
+import com.chaching.backend.model.UserChangeEvent;
+import com.chaching.backend.security.CustomUserDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+
+// Users who changed something within the read-your-writes window. Their reads stay on the primary until the
+// window passes, so a replica that is a little behind never hides a change they just made.
+public class RecentWriters {
+
+    private final Cache<Long, Boolean> writers;
+
+    public RecentWriters(Duration window, long maxSize) {
+        this.writers = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    // Every service that changes a user's data publishes one of these, including the batched goal path
+    @EventListener
+    public void onChange(UserChangeEvent event) {
+        writers.put(event.getUserId(), Boolean.TRUE);
+    }
+
+    // Only a signed-in user outside their window may read a replica. Sign-up, login and background jobs have no
+    // user to track, so they read the primary: a check such as "is this email taken" must never see a replica
+    // that is behind.
+    public boolean currentUserMayReadReplica() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.getPrincipal() instanceof CustomUserDetails user
+                && writers.getIfPresent(user.getId()) == null;
+    }
+}
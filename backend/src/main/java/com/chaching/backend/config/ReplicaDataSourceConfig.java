@@ -0,0 +1,60 @@
+package com.chaching.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+// Only active once app.datasource.replicas lists at least one replica; otherwise Boot's single data source is used.
+// The lazy proxy waits for the first statement before taking a connection, by which point the transaction
+// manager has marked it read-only or not: read-only transactions (including the repositories' own defaults)
+// made for a signed-in user go to a replica, everything else to the primary (see RecentWriters).
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas[0].jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public RecentWriters recentWriters(@Value("${app.datasource.read-your-writes-window:5s}") Duration window,
+                                       @Value("${app.datasource.read-your-writes-max-users:100000}") long maxUsers) {
+        return new RecentWriters(window, maxUsers);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource, RecentWriters recentWriters,
+                                                      Environment environment) {
+        List<HikariDataSource> replicas = Binder.get(environment)
+                .bind("app.datasource.replicas", Bindable.listOf(HikariDataSource.class))
+                .get();
+        for (int i = 0; i < replicas.size(); i++) {
+            replicas.get(i).setPoolName("replica-" + i);
+            replicas.get(i).setReadOnly(true);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, recentWriters);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,48 @@
+package com.chaching.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Where read-only connections come from: the replicas in turn for signed-in users, or the primary for users inside
+// their read-your-writes window and for reads made without a signed-in user
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<HikariDataSource> replicas;
+    private final RecentWriters recentWriters;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, RecentWriters recentWriters) {
+        this.replicas = replicas;
+        this.recentWriters = recentWriters;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!recentWriters.currentUserMayReadReplica()) {
+            return PRIMARY;
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    // The primary pool is its own bean and is closed by the context
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
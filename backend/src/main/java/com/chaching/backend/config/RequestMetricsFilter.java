@@ -0,0 +1,87 @@
+package com.chaching.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Queries per request and the time spent in them, tagged by route, plus a sampled log of statements over the
+// slow-query threshold. Runs outside the security filters so the auth lookups are counted too.
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final int MAX_LOGGED_SQL_LENGTH = 500;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter slowQueryCounter;
+    private final long slowThresholdNanos;
+    private final double slowLogSampleRate;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry,
+                                @Value("${metrics.slow-query.threshold:200ms}") Duration slowThreshold,
+                                @Value("${metrics.slow-query.log-sample-rate:1.0}") double slowLogSampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryCounter = meterRegistry.counter("chaching.query.slow");
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowLogSampleRate = slowLogSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStats stats = RequestQueryStats.begin(slowThresholdNanos);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryStats.end();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestQueryStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        DistributionSummary.builder("chaching.request.queries")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(stats.statements());
+        Timer.builder("chaching.request.query.time")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(stats.statementNanos(), TimeUnit.NANOSECONDS);
+
+        for (RequestQueryStats.SlowQuery slow : stats.slowQueries()) {
+            slowQueryCounter.increment();
+            if (slowLogSampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < slowLogSampleRate) {
+                log.warn("Slow query ({} ms) in {} {}: {}", TimeUnit.NANOSECONDS.toMillis(slow.nanos()),
+                        request.getMethod(), uri, abbreviate(slow.sql()));
+            }
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        if (sql == null || sql.length() <= MAX_LOGGED_SQL_LENGTH) {
+            return sql;
+        }
+        return sql.substring(0, MAX_LOGGED_SQL_LENGTH) + "...";
+    }
+}
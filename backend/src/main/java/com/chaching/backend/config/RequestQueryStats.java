@@ -0,0 +1,69 @@
+package com.chaching.backend.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// JDBC activity of the current request, filled in by Hibernate callbacks on the request thread and read back by
+// RequestMetricsFilter. Work handed to other threads (dashboard parts, live feed fan-out) is not counted.
+final class RequestQueryStats {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+    private static final int MAX_SLOW_QUERIES = 5;
+
+    record SlowQuery(String sql, long nanos) {
+    }
+
+    private final long slowThresholdNanos;
+    private final List<SlowQuery> slowQueries = new ArrayList<>(0);
+    private int statements;
+    private long statementNanos;
+    private String lastSql;
+    private long executionStart;
+
+    private RequestQueryStats(long slowThresholdNanos) {
+        this.slowThresholdNanos = slowThresholdNanos;
+    }
+
+    static RequestQueryStats begin(long slowThresholdNanos) {
+        RequestQueryStats stats = new RequestQueryStats(slowThresholdNanos);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    void sqlPrepared(String sql) {
+        lastSql = sql;
+    }
+
+    void executionStarted() {
+        executionStart = System.nanoTime();
+    }
+
+    void executionEnded() {
+        long elapsed = System.nanoTime() - executionStart;
+        statements++;
+        statementNanos += elapsed;
+        if (elapsed >= slowThresholdNanos && slowQueries.size() < MAX_SLOW_QUERIES) {
+            slowQueries.add(new SlowQuery(lastSql, elapsed));
+        }
+    }
+
+    int statements() {
+        return statements;
+    }
+
+    long statementNanos() {
+        return statementNanos;
+    }
+
+    List<SlowQuery> slowQueries() {
+        return slowQueries;
+    }
+}
@@ -3,10 +3,15 @@ package com.chaching.backend.config;
 import com.chaching.backend.model.User;
 import com.chaching.backend.service.JwtTokenService;
 import com.chaching.backend.service.UserService;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -21,6 +26,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import java.util.Arrays;
 import java.util.List;
 
+@Slf4j
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -40,13 +46,24 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private Environment environment;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        // Health and info are always open. The other actuator endpoints are open only on a separate management
+        // port, which is not exposed publicly; if management.server.port is the app's own port they need a
+        // signed-in user like the API
+        boolean separateManagementPort = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT;
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Async dispatches only continue requests that were already authorized (live feed streams)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/", "/error", "/oauth2/**").permitAll()
+                .requestMatchers(EndpointRequest.to("health", "info")).permitAll()
+                .requestMatchers(request -> separateManagementPort && EndpointRequest.toAnyEndpoint().matches(request)).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
                 .anyRequest().authenticated()
@@ -62,14 +79,12 @@ public class SecurityConfig {
                     String fullName = oauth2User.getAttribute("name");
                     String picture = (String) oauth2User.getAttribute("picture");
 
-                    System.out.println("OAuth2 login successful for: " + email);
-
                     // Create or find the user
                     User user = userService.findOrCreateUser(email, fullName, picture);
+                    log.info("OAuth2 login successful for user {}", user.getId());
 
                     // Generate JWT token
                     String token = jwtTokenService.generateToken(user);
-                    System.out.println("Generated JWT: " + token);
 
                     // Send the token back to the client
                     response.sendRedirect("https://cha-ching-90f7d.web.app/auth-callback?token=" + token);
@@ -0,0 +1,139 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.CategoryRule;
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.ExportFormat;
+import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.service.CategorizationService;
+import com.chaching.backend.service.ExchangeRateService;
+import com.chaching.backend.service.RecategorizationJob;
+import com.chaching.backend.service.RecurringTransactionJob;
+import com.chaching.backend.service.TransactionArchiveJob;
+import com.chaching.backend.service.TransactionExportService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Operations for the finance team. There are no roles yet, so access is by email address (admin.emails).
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final TransactionExportService transactionExportService;
+    private final CategorizationService categorizationService;
+    private final ExchangeRateService exchangeRateService;
+    private final RecategorizationJob recategorizationJob;
+    private final RecurringTransactionJob recurringTransactionJob;
+    private final TransactionArchiveJob transactionArchiveJob;
+    private final Set<String> adminEmails;
+
+    public AdminController(TransactionExportService transactionExportService,
+                           CategorizationService categorizationService,
+                           ExchangeRateService exchangeRateService,
+                           RecategorizationJob recategorizationJob,
+                           RecurringTransactionJob recurringTransactionJob,
+                           TransactionArchiveJob transactionArchiveJob,
+                           @Value("${admin.emails:}") List<String> adminEmails) {
+        this.transactionExportService = transactionExportService;
+        this.categorizationService = categorizationService;
+        this.exchangeRateService = exchangeRateService;
+        this.recategorizationJob = recategorizationJob;
+        this.recurringTransactionJob = recurringTransactionJob;
+        this.transactionArchiveJob = transactionArchiveJob;
+        this.adminEmails = adminEmails.stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @GetMapping("/transactions/export")
+    public void exportAllTransactions(@AuthenticationPrincipal CustomUserDetails user,
+                                      @RequestParam(defaultValue = "csv") String format,
+                                      HttpServletResponse response) throws IOException {
+        requireAdmin(user);
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        transactionExportService.exportAll(exportFormat, () -> ExportResponses.open(response, exportFormat, "all-transactions"));
+    }
+
+    // Global rules apply to every user, after their own
+    @GetMapping("/category-rules")
+    public List<CategoryRule> getGlobalRules(@AuthenticationPrincipal CustomUserDetails user) {
+        requireAdmin(user);
+        return categorizationService.getRules(null);
+    }
+
+    @PostMapping("/category-rules")
+    public CategoryRule addGlobalRule(@AuthenticationPrincipal CustomUserDetails user, @RequestBody CategoryRule rule) {
+        requireAdmin(user);
+        return categorizationService.addRule(null, rule);
+    }
+
+    @DeleteMapping("/category-rules/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteGlobalRule(@AuthenticationPrincipal CustomUserDetails user, @PathVariable Long id) {
+        requireAdmin(user);
+        categorizationService.deleteRule(null, id);
+    }
+
+    // Units of each currency per unit of the base currency; currencies left out keep their rates
+    @PutMapping("/exchange-rates")
+    public ExchangeRates updateExchangeRates(@AuthenticationPrincipal CustomUserDetails user,
+                                             @RequestBody Map<String, BigDecimal> rates) {
+        requireAdmin(user);
+        exchangeRateService.updateRates(rates);
+        return exchangeRateService.current();
+    }
+
+    // Runs in the background; progress and the final counts go to the log
+    @PostMapping("/recategorize")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, String> recategorize(@AuthenticationPrincipal CustomUserDetails user) {
+        requireAdmin(user);
+        if (!recategorizationJob.start()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Recategorization is already running");
+        }
+        return Map.of("status", "started");
+    }
+
+    // Starts the nightly run now, in the background; partitions a run has already finished today are skipped
+    @PostMapping("/recurring/run")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, String> runRecurring(@AuthenticationPrincipal CustomUserDetails user) {
+        requireAdmin(user);
+        if (!recurringTransactionJob.start(LocalDate.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Recurring transactions are already being generated");
+        }
+        return Map.of("status", "started");
+    }
+
+    // Archives everything older than archive.horizon-days now, in the background, whether or not the nightly run is enabled
+    @PostMapping("/archive/run")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, String> runArchive(@AuthenticationPrincipal CustomUserDetails user) {
+        requireAdmin(user);
+        if (!transactionArchiveJob.start()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An archive run is already in progress");
+        }
+        return Map.of("status", "started");
+    }
+
+    private void requireAdmin(CustomUserDetails user) {
+        if (user.getEmail() == null || !adminEmails.contains(user.getEmail().toLowerCase(Locale.ROOT))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.AuthRequest;
+import com.chaching.backend.service.AuthService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Local email/password accounts alongside Google sign-in. Both return the same JWT as the OAuth2 flow.
+// The handlers return futures, so the request thread is released while the password is hashed.
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/auth")
+@RequiredArgsConstructor
+public class AuthController {
+
+    private final AuthService authService;
+
+    @PostMapping("/signup")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<Map<String, String>> signup(@RequestBody AuthRequest request) {
+        return authService.signup(request.getEmail(), request.getPassword(), request.getFullName())
+                .thenApply(token -> Map.of("token", token));
+    }
+
+    @PostMapping("/login")
+    public CompletableFuture<Map<String, String>> login(@RequestBody AuthRequest request) {
+        return authService.login(request.getEmail(), request.getPassword())
+                .thenApply(token -> Map.of("token", token));
+    }
+}
@@ -1,23 +1,37 @@
 package com.chaching.backend.controller;
 
 import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.BudgetStatus;
+import com.chaching.backend.model.ExchangeRates;
 import com.chaching.backend.service.BudgetService;
+import com.chaching.backend.service.ExchangeRateService;
 import com.chaching.backend.security.CustomUserDetails;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.YearMonth;
 import java.util.List;
 
 @RestController
+@Timed("chaching.controller")
 @RequestMapping("/api/budgets")
 @RequiredArgsConstructor
 public class BudgetController {
 
     private final BudgetService budgetService;
+    private final ExchangeRateService exchangeRateService;
+    private final UserDataEtags userDataEtags;
 
     @GetMapping
-    public List<Budget> getBudgets(@AuthenticationPrincipal CustomUserDetails user) {
+    public List<Budget> getBudgets(@AuthenticationPrincipal CustomUserDetails user, ServletWebRequest request) {
+        if (userDataEtags.notModified(user.getId(), request)) {
+            return null;
+        }
         return budgetService.getBudgetsByUser(user.getId());
     }
 
@@ -26,4 +40,23 @@ public class BudgetController {
                             @RequestBody Budget budget) {
         return budgetService.addBudget(user.getId(), budget);
     }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteBudget(@AuthenticationPrincipal CustomUserDetails user, @PathVariable Long id) {
+        budgetService.deleteBudget(user.getId(), id);
+    }
+
+    @GetMapping("/status")
+    public List<BudgetStatus> getBudgetStatus(@AuthenticationPrincipal CustomUserDetails user,
+                                              @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth month,
+                                              ServletWebRequest request) {
+        YearMonth statusMonth = month == null ? YearMonth.now() : month;
+        // Spending in other currencies is converted into each budget's, so a change of rates changes the response
+        ExchangeRates rates = exchangeRateService.current();
+        if (userDataEtags.notModified(user.getId(), statusMonth + "." + rates.version(), request)) {
+            return null;
+        }
+        return budgetService.getBudgetStatus(user.getId(), statusMonth, rates);
+    }
 }
@@ -0,0 +1,39 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.CategoryRule;
+import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.service.CategorizationService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// The user's own keyword rules; transactions saved without a category are categorized by these first,
+// then by the global rules
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/category-rules")
+@RequiredArgsConstructor
+public class CategoryRuleController {
+
+    private final CategorizationService categorizationService;
+
+    @GetMapping
+    public List<CategoryRule> getRules(@AuthenticationPrincipal CustomUserDetails user) {
+        return categorizationService.getRules(user.getId());
+    }
+
+    @PostMapping
+    public CategoryRule addRule(@AuthenticationPrincipal CustomUserDetails user, @RequestBody CategoryRule rule) {
+        return categorizationService.addRule(user.getId(), rule);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteRule(@AuthenticationPrincipal CustomUserDetails user, @PathVariable Long id) {
+        categorizationService.deleteRule(user.getId(), id);
+    }
+}
@@ -0,0 +1,43 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.Dashboard;
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.service.DashboardService;
+import com.chaching.backend.service.ExchangeRateService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.YearMonth;
+
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+    private final ExchangeRateService exchangeRateService;
+    private final UserDataEtags userDataEtags;
+
+    @GetMapping
+    // Summary figures are in the given currency, the base currency by default
+    public Dashboard getDashboard(@AuthenticationPrincipal CustomUserDetails user,
+                                  @RequestParam(required = false) String currency,
+                                  ServletWebRequest request) {
+        YearMonth month = YearMonth.now();
+        ExchangeRates rates = exchangeRateService.current();
+        String target = exchangeRateService.require(rates, currency);
+        if (userDataEtags.notModified(user.getId(), month + "." + target + "." + rates.version(), request)) {
+            return null;
+        }
+        Dashboard dashboard = dashboardService.getDashboard(user.getId(), month, rates, target);
+        if (!dashboard.getFailedParts().isEmpty()) {
+            userDataEtags.doNotCache(request);
+        }
+        return dashboard;
+    }
+}
@@ -0,0 +1,24 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.service.ExchangeRateService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// The rates the server converts with, so clients can show amounts in the same currency the summaries use
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/exchange-rates")
+@RequiredArgsConstructor
+public class ExchangeRateController {
+
+    private final ExchangeRateService exchangeRateService;
+
+    @GetMapping
+    public ExchangeRates getRates() {
+        return exchangeRateService.current();
+    }
+}
@@ -0,0 +1,28 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.ExportFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+final class ExportResponses {
+
+    private ExportResponses() {
+    }
+
+    // Sets the download headers and returns the buffered body. Exports are never cached: they are large,
+    // personal and out of date as soon as anything changes.
+    static OutputStream open(HttpServletResponse response, ExportFormat format, String name) throws IOException {
+        response.setContentType(format.mediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(name + "." + format.extension())
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        return new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+    }
+}
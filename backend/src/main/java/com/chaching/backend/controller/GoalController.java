@@ -4,24 +4,38 @@ import com.chaching.backend.model.Goal;
 import com.chaching.backend.model.ContributionRequest;
 import com.chaching.backend.service.GoalService;
 import com.chaching.backend.security.CustomUserDetails;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
 @RestController
+@Timed("chaching.controller")
 @RequestMapping("/api/goals")
 @RequiredArgsConstructor
 public class GoalController {
 
     private final GoalService goalService;
+    private final UserDataEtags userDataEtags;
 
     @GetMapping
-    public List<Goal> getGoals(@AuthenticationPrincipal CustomUserDetails user) {
+    public List<Goal> getGoals(@AuthenticationPrincipal CustomUserDetails user, ServletWebRequest request) {
+        if (userDataEtags.notModified(user.getId(), request)) {
+            return null;
+        }
         return goalService.getGoalsByUser(user.getId());
     }
 
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteGoal(@AuthenticationPrincipal CustomUserDetails user, @PathVariable Long id) {
+        goalService.deleteGoal(user.getId(), id);
+    }
+
     @PostMapping("/{id}/contribute")
     public Goal contribute(@AuthenticationPrincipal CustomUserDetails user,
                            @PathVariable Long id,
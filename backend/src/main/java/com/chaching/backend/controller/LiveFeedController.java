@@ -0,0 +1,25 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.service.LiveFeedService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Server-sent events for the signed-in user's changes, so the client can stop re-fetching whole lists
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/live")
+@RequiredArgsConstructor
+public class LiveFeedController {
+
+    private final LiveFeedService liveFeedService;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@AuthenticationPrincipal CustomUserDetails user) {
+        return liveFeedService.subscribe(user.getId());
+    }
+}
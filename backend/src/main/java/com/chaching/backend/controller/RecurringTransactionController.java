@@ -0,0 +1,38 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.RecurringTransaction;
+import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.service.RecurringTransactionService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/recurring-transactions")
+@RequiredArgsConstructor
+public class RecurringTransactionController {
+
+    private final RecurringTransactionService recurringTransactionService;
+
+    @GetMapping
+    public List<RecurringTransaction> getTemplates(@AuthenticationPrincipal CustomUserDetails user) {
+        return recurringTransactionService.getTemplates(user.getId());
+    }
+
+    @PostMapping
+    public RecurringTransaction addTemplate(@AuthenticationPrincipal CustomUserDetails user,
+                                            @RequestBody RecurringTransaction template) {
+        return recurringTransactionService.addTemplate(user.getId(), template);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteTemplate(@AuthenticationPrincipal CustomUserDetails user, @PathVariable Long id) {
+        recurringTransactionService.deleteTemplate(user.getId(), id);
+    }
+}
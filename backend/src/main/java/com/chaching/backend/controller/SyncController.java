@@ -0,0 +1,26 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.model.SyncPage;
+import com.chaching.backend.security.CustomUserDetails;
+import com.chaching.backend.service.SyncService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+// Lets clients keep a local copy of transactions, budgets and goals and fetch only what changed since last time
+@RestController
+@Timed("chaching.controller")
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @GetMapping
+    public SyncPage sync(@AuthenticationPrincipal CustomUserDetails user,
+                         @RequestParam(required = false) String since,
+                         @RequestParam(required = false) Integer size) {
+        return syncService.changesSince(user.getId(), since, size);
+    }
+}
@@ -1,29 +1,163 @@
 package com.chaching.backend.controller;
 
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.ExportFormat;
 import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.TransactionPage;
+import com.chaching.backend.model.TransactionSearchPage;
+import com.chaching.backend.model.TransactionSummary;
+import com.chaching.backend.service.ExchangeRateService;
+import com.chaching.backend.service.TransactionExportService;
 import com.chaching.backend.service.TransactionService;
 import com.chaching.backend.security.CustomUserDetails;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
+@Timed("chaching.controller")
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final ExchangeRateService exchangeRateService;
+    private final ObjectMapper objectMapper;
+    private final UserDataEtags userDataEtags;
 
     @GetMapping
-    public List<Transaction> getAllTransactions(@AuthenticationPrincipal CustomUserDetails user) {
+    public List<Transaction> getAllTransactions(@AuthenticationPrincipal CustomUserDetails user,
+                                                ServletWebRequest request) {
+        if (userDataEtags.notModified(user.getId(), request)) {
+            return null;
+        }
         return transactionService.getTransactionsByUser(user.getId());
     }
 
+    // Same JSON array as above, but written row by row from a database cursor
+    @GetMapping(params = "stream=true")
+    public void streamAllTransactions(@AuthenticationPrincipal CustomUserDetails user,
+                                      HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            transactionService.streamTransactionsByUser(user.getId(), transaction -> {
+                try {
+                    generator.writeObject(transaction);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    // The full history as a download: csv (re-importable through /import), ndjson or columnar
+    @GetMapping("/export")
+    public void exportTransactions(@AuthenticationPrincipal CustomUserDetails user,
+                                   @RequestParam(defaultValue = "csv") String format,
+                                   HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        try (OutputStream out = ExportResponses.open(response, exportFormat, "transactions")) {
+            transactionExportService.exportUser(user.getId(), exportFormat, out);
+        }
+    }
+
+    @GetMapping("/page")
+    public TransactionPage getTransactionPage(@AuthenticationPrincipal CustomUserDetails user,
+                                              @RequestParam(required = false) Long after,
+                                              @RequestParam(required = false) Integer size,
+                                              ServletWebRequest request) {
+        if (userDataEtags.notModified(user.getId(), request)) {
+            return null;
+        }
+        return transactionService.getTransactionPage(user.getId(), after, size);
+    }
+
+    @GetMapping("/search")
+    public TransactionSearchPage search(@AuthenticationPrincipal CustomUserDetails user,
+                                        @RequestParam String q,
+                                        @RequestParam(required = false) Integer page,
+                                        @RequestParam(required = false) Integer size) {
+        return transactionService.search(user.getId(), q, page, size);
+    }
+
+    @GetMapping("/range")
+    public TransactionPage getTransactionsInRange(@AuthenticationPrincipal CustomUserDetails user,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                  @RequestParam(required = false) String category,
+                                                  @RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer size,
+                                                  ServletWebRequest request) {
+        if (userDataEtags.notModified(user.getId(), request)) {
+            return null;
+        }
+        return transactionService.getTransactionsInRange(user.getId(), from, to, category, after, size);
+    }
+
+    @GetMapping("/summary")
+    public List<TransactionSummary> summarize(@AuthenticationPrincipal CustomUserDetails user,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                              @RequestParam(defaultValue = "month") String groupBy,
+                                              @RequestParam(required = false) String currency,
+                                              ServletWebRequest request) {
+        TransactionSummary.GroupBy grouping;
+        try {
+            grouping = TransactionSummary.GroupBy.valueOf(groupBy.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "groupBy must be day, month or category");
+        }
+        ExchangeRates rates = exchangeRateService.current();
+        String target = exchangeRateService.require(rates, currency);
+        if (userDataEtags.notModified(user.getId(), target + "." + rates.version(), request)) {
+            return null;
+        }
+        return transactionService.summarize(user.getId(), from, to, grouping, rates, target);
+    }
+
     @PostMapping
     public Transaction createTransaction(@AuthenticationPrincipal CustomUserDetails user,
                                          @RequestBody Transaction transaction) {
         return transactionService.createTransaction(user.getId(), transaction);
     }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteTransaction(@AuthenticationPrincipal CustomUserDetails user, @PathVariable Long id) {
+        transactionService.deleteTransaction(user.getId(), id);
+    }
+
+    @PostMapping("/batch")
+    public Map<String, Integer> importTransactions(@AuthenticationPrincipal CustomUserDetails user,
+                                                   @RequestBody List<Transaction> transactions) {
+        return Map.of("imported", transactionService.importTransactions(user.getId(), transactions));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public Map<String, Integer> importCsv(@AuthenticationPrincipal CustomUserDetails user,
+                                          InputStream csv) throws IOException {
+        return Map.of("imported", transactionService.importCsv(user.getId(), csv));
+    }
 }
@@ -1,5 +1,6 @@
 package com.chaching.backend.controller;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.Map;
 
 @RestController
+@Timed("chaching.controller")
 @RequestMapping("/api")
 public class UserController {
 
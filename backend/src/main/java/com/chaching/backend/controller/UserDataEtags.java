@@ -0,0 +1,38 @@
+package com.chaching.backend.controller;
+
+import com.chaching.backend.service.DataVersionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// Conditional GET for per-user data: the ETag is the user's data version, so a client whose copy is current
+// gets a 304 without the handler touching the entity tables
+@Component
+@RequiredArgsConstructor
+class UserDataEtags {
+
+    private final DataVersionService dataVersionService;
+
+    // Call first in a GET handler and return null when it says true; the response is then already a 304
+    boolean notModified(Long userId, ServletWebRequest request) {
+        return notModified(userId, null, request);
+    }
+
+    // For responses that also depend on something other than the user's data, such as the current month
+    boolean notModified(Long userId, Object variant, ServletWebRequest request) {
+        // Responses may be kept by the browser but must be revalidated; the user id keeps accounts sharing a browser apart.
+        // The tag is weak because one version has several encodings (JSON, CBOR, Smile, gzipped or not), and Tomcat
+        // will not compress a response carrying a strong one.
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String version = userId + "." + dataVersionService.currentVersion(userId) + (variant == null ? "" : "." + variant);
+        return request.checkNotModified("W/\"" + version + "\"");
+    }
+
+    // For a response that must not be reused later, e.g. one assembled from partial results; without a stored
+    // copy the client never sends its ETag back
+    void doNotCache(ServletWebRequest request) {
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+}
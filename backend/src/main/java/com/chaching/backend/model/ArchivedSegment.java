@@ -0,0 +1,38 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// The current segment file holding one user's archived transactions for one year. Archiving more of that year
+// writes a new generation of the file and moves this row to it in the same database transaction that deletes
+// the archived rows from the transaction table, so a reader sees each row in exactly one of the two.
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_archived_segment_user_year", columnNames = {"user_id", "segment_year"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+
+    @Column(name = "segment_year")
+    private int year;
+
+    private int generation;
+
+    private long rowCount;
+
+    private long minId;
+
+    private long maxId;
+
+    private long sizeBytes;
+
+    private Instant archivedAt;
+}
@@ -0,0 +1,13 @@
+package com.chaching.backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Body of POST /api/auth/signup and /api/auth/login; fullName is only read on signup
+@Getter
+@Setter
+public class AuthRequest {
+    private String email;
+    private String password;
+    private String fullName;
+}
@@ -14,9 +14,12 @@ public class Budget {
 
     private Long userId;
 
-    private Double amount;
+    @Column(name = "amount_cents")
+    private Money amount;
 
     private String category;
 
-    // Add other fields if needed
+    // ISO 4217 code; null means the base currency
+    @Column(length = 3)
+    private String currency;
 }
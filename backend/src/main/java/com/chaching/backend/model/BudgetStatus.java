@@ -0,0 +1,15 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BudgetStatus {
+    private Long budgetId;
+    private String category;
+    private Money budgeted;
+    private Money spent;
+    private Money remaining;
+    private String currency;
+}
@@ -0,0 +1,23 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Transactions whose description contains the keyword get the category. A user's own rules win over
+// global ones, which have no userId and apply to everyone.
+@Entity
+@Table(indexes = @Index(name = "idx_category_rule_user_id", columnList = "userId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+
+    private String keyword;
+
+    private String category;
+}
@@ -0,0 +1,5 @@
+package com.chaching.backend.model;
+
+// A user's rules, or the global rules when userId is null, were added to or removed
+public record CategoryRulesChangedEvent(Long userId) {
+}
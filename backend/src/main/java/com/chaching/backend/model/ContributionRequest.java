@@ -6,5 +6,5 @@ import lombok.Setter;
 @Getter
 @Setter
 public class ContributionRequest {
-    private Double amount;
+    private Money amount;
 }
@@ -0,0 +1,29 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Everything the dashboard shows in one response. A part that failed or timed out is null and named in
+// failedParts; summary figures that depend on it are null too.
+@Getter
+@AllArgsConstructor
+public class Dashboard {
+    private List<Transaction> recentTransactions;
+    private List<BudgetStatus> budgets;
+    private List<Goal> goals;
+    private Summary summary;
+    private List<String> failedParts;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Summary {
+        private Money spentThisMonth;
+        private Money budgetedThisMonth;
+        private Money remainingThisMonth;
+        private Money savedTowardGoals;
+        private Money goalTargets;
+        private String currency;
+    }
+}
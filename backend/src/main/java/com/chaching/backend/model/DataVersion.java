@@ -0,0 +1,17 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Counter bumped on every change to a user's transactions, budgets or goals; GET responses use it as their ETag
+@Entity
+@Table(name = "user_data_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataVersion {
+    @Id
+    private Long userId;
+
+    private Long version;
+}
@@ -0,0 +1,23 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// How many units of the currency one unit of the base currency (currency.base) buys
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExchangeRate {
+    @Id
+    @Column(length = 3)
+    private String currency;
+
+    @Column(precision = 20, scale = 10, nullable = false)
+    private BigDecimal rate;
+
+    private Instant updatedAt;
+}
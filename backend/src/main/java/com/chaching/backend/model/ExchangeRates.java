@@ -0,0 +1,43 @@
+package com.chaching.backend.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+// One immutable set of exchange rates, each the units of a currency one unit of the base buys. The set in use is
+// replaced whole, so a reader that takes it once converts a whole response at the same rates without locking.
+// version is the time of the latest rate change, which is the same on every instance that has loaded it.
+public record ExchangeRates(String base, long version, Map<String, BigDecimal> rates) {
+
+    public ExchangeRates {
+        rates = Map.copyOf(rates);
+    }
+
+    public boolean supports(String currency) {
+        return currency == null || rates.containsKey(currency);
+    }
+
+    // Null is the base currency
+    public String resolve(String currency) {
+        return currency == null ? base : currency;
+    }
+
+    // Amounts are cents of either currency; rounded half-even to the cent
+    public long convert(long cents, String from, String to) {
+        String source = resolve(from);
+        String target = resolve(to);
+        if (cents == 0 || source.equals(target)) {
+            return cents;
+        }
+        BigDecimal sourceRate = rates.get(source);
+        BigDecimal targetRate = rates.get(target);
+        if (sourceRate == null || targetRate == null) {
+            throw new IllegalStateException("No exchange rate between " + source + " and " + target);
+        }
+        return BigDecimal.valueOf(cents).multiply(targetRate).divide(sourceRate, 0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    public Money convert(Money amount, String from, String to) {
+        return Money.ofCents(convert(Money.centsOf(amount), from, to));
+    }
+}
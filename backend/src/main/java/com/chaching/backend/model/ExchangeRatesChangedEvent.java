@@ -0,0 +1,5 @@
+package com.chaching.backend.model;
+
+// Exchange rates were added or changed
+public record ExchangeRatesChangedEvent() {
+}
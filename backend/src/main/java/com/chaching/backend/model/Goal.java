@@ -16,9 +16,13 @@ public class Goal {
 
     private String name;
 
-    private Double targetAmount;
+    @Column(name = "target_amount_cents")
+    private Money targetAmount;
 
-    private Double currentAmount;
+    @Column(name = "current_amount_cents")
+    private Money currentAmount;
 
-    // Add other fields if necessary
+    // ISO 4217 code; null means the base currency
+    @Column(length = 3)
+    private String currency;
 }
@@ -0,0 +1,28 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One accepted contribution, written in the same transaction as the goal update it belongs to
+@Entity
+@Table(indexes = @Index(name = "idx_goal_contribution_goal_id", columnList = "goalId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoalContribution {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "goal_contribution_seq")
+    @SequenceGenerator(name = "goal_contribution_seq", sequenceName = "goal_contribution_seq", allocationSize = 50)
+    private Long id;
+
+    private Long goalId;
+
+    private Long userId;
+
+    @Column(name = "amount_cents")
+    private Money amount;
+
+    private LocalDateTime createdAt;
+}
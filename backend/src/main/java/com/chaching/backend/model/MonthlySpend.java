@@ -0,0 +1,37 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Running total of a user's spending (transactions with a negative amount, totalled as a positive amount) for one
+// category in one calendar month, in one currency. Totals are kept in the currency the transactions were in and
+// converted when read, so a change of rates needs no rebuild.
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+    name = "uk_monthly_spend_user_month_category_currency",
+    columnNames = {"userId", "monthStart", "category", "currency"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlySpend {
+    public static final String UNCATEGORIZED = "Uncategorized";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+
+    private LocalDate monthStart;
+
+    private String category;
+
+    @Column(length = 3)
+    private String currency;
+
+    private Long totalCents;
+
+    private Long transactionCount;
+}
@@ -0,0 +1,21 @@
+package com.chaching.backend.model;
+
+import java.time.LocalDate;
+
+public enum RecurringFrequency {
+    DAILY,
+    WEEKLY,
+    MONTHLY,
+    YEARLY;
+
+    // The nth occurrence counted from the start (0 is the start itself). Always counted from the start rather
+    // than from the previous occurrence, so a rent due on the 31st comes back to the 31st after a short month.
+    public LocalDate occurrence(LocalDate start, long n) {
+        return switch (this) {
+            case DAILY -> start.plusDays(n);
+            case WEEKLY -> start.plusWeeks(n);
+            case MONTHLY -> start.plusMonths(n);
+            case YEARLY -> start.plusYears(n);
+        };
+    }
+}
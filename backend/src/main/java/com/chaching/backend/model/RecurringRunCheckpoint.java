@@ -0,0 +1,32 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// How far the recurring job got through one partition on one run date. A restarted run skips completed
+// partitions and picks the others up again from lastUserId.
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_recurring_run_checkpoint", columnNames = {"run_date", "partition_no"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringRunCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDate runDate;
+
+    private int partitionNo;
+
+    private Long lastUserId;
+
+    private long generated;
+
+    private boolean completed;
+
+    private Instant updatedAt;
+}
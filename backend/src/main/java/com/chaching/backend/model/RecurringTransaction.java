@@ -0,0 +1,45 @@
+package com.chaching.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// A template for rent, salary, subscriptions and the like. The nightly job turns every occurrence that has come
+// due into a transaction and moves nextRunDate on; it is null once the template has reached its end date.
+@Entity
+@Table(indexes = @Index(name = "idx_recurring_transaction_user_next_run", columnList = "userId, nextRunDate"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringTransaction {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+
+    @Column(name = "amount_cents")
+    private Money amount;
+
+    private String description;
+
+    private String category;
+
+    @Enumerated(EnumType.STRING)
+    private RecurringFrequency frequency;
+
+    private LocalDate startDate;
+
+    // Inclusive; null runs forever
+    private LocalDate endDate;
+
+    // Occurrences generated so far
+    private long occurrences;
+
+    private LocalDate nextRunDate;
+
+    // Set when generating from the template failed even on its own; the job passes over it from then on
+    private Instant quarantinedAt;
+}
@@ -0,0 +1,23 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Rows created, changed or deleted since the client's last sync. Pass "next" back as "since" to continue; when
+// hasMore is false the client is up to date and should keep "next" for its following sync.
+@Getter
+@AllArgsConstructor
+public class SyncPage {
+    private List<Transaction> transactions;
+    private List<Budget> budgets;
+    private List<Goal> goals;
+    private List<Deleted> deleted;
+    private String next;
+    private boolean hasMore;
+
+    // type is "transaction", "budget" or "goal"
+    public record Deleted(String type, Long id) {
+    }
+}
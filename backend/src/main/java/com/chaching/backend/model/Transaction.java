@@ -3,20 +3,46 @@ package com.chaching.backend.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDate;
+
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_transaction_user_id_id", columnList = "userId, id"),
+    @Index(name = "idx_transaction_user_date", columnList = "userId, transaction_date"),
+    @Index(name = "idx_transaction_user_category_date", columnList = "userId, category, transaction_date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY rules out
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private Long userId;
 
-    private Double amount;
+    @Column(name = "amount_cents")
+    private Money amount;
 
     private String description;
 
-    // Add other fields like date, category, etc.
+    @Column(name = "transaction_date")
+    private LocalDate date;
+
+    private String category;
+
+    // ISO 4217 code; null on rows saved before currencies existed, which are in the base currency
+    @Column(length = 3)
+    private String currency;
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.date == null) {
+            this.date = LocalDate.now();
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// One keyset page of a user's transactions; pass nextCursor back as "after" to get the next one
+@Getter
+@AllArgsConstructor
+public class TransactionPage {
+    private List<Transaction> items;
+    private Long nextCursor;
+}
@@ -0,0 +1,14 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// One page of search results, best match first; nextPage is null on the last page
+@Getter
+@AllArgsConstructor
+public class TransactionSearchPage {
+    private List<Transaction> items;
+    private Integer nextPage;
+}
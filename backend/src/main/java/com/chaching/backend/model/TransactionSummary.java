@@ -0,0 +1,18 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Total and count for one bucket: a day (yyyy-MM-dd), a month (yyyy-MM) or a category. The total is in currency.
+@Getter
+@AllArgsConstructor
+public class TransactionSummary {
+    private String key;
+    private Money total;
+    private Long count;
+    private String currency;
+
+    public enum GroupBy {
+        DAY, MONTH, CATEGORY
+    }
+}
@@ -0,0 +1,35 @@
+package com.chaching.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published by the services whenever a user's data changes; the live feed forwards it to that user's open streams
+@Getter
+@AllArgsConstructor
+public class UserChangeEvent {
+    private Long userId;
+    private Type type;
+    private Object payload;
+
+    public enum Type {
+        TRANSACTION_CREATED("transaction.created"),
+        TRANSACTION_DELETED("transaction.deleted"),
+        TRANSACTIONS_IMPORTED("transactions.imported"),
+        TRANSACTIONS_RECATEGORIZED("transactions.recategorized"),
+        RECURRING_GENERATED("transactions.recurring"),
+        GOAL_CONTRIBUTION("goal.contribution"),
+        GOAL_DELETED("goal.deleted"),
+        BUDGET_ADDED("budget.added"),
+        BUDGET_DELETED("budget.deleted");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public String eventName() {
+            return eventName;
+        }
+    }
+}
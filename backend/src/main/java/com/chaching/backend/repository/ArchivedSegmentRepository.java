@@ -0,0 +1,21 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.ArchivedSegment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchivedSegmentRepository extends JpaRepository<ArchivedSegment, Long> {
+    List<ArchivedSegment> findByUserIdOrderByYear(Long userId);
+
+    // Locked, so two archivers cannot both build the next generation of the same segment
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ArchivedSegment> findByUserIdAndYear(Long userId, int year);
+
+    @Query("SELECT s FROM ArchivedSegment s ORDER BY s.userId, s.year")
+    List<ArchivedSegment> findAllOrdered();
+}
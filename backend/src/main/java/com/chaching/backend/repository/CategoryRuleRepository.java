@@ -0,0 +1,12 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.CategoryRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CategoryRuleRepository extends JpaRepository<CategoryRule, Long> {
+    List<CategoryRule> findByUserIdOrderById(Long userId);
+
+    List<CategoryRule> findByUserIdIsNullOrderById();
+}
@@ -0,0 +1,21 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.DataVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface DataVersionRepository extends JpaRepository<DataVersion, Long> {
+
+    @Query("SELECT d.version FROM DataVersion d WHERE d.userId = :userId")
+    Optional<Long> findVersion(Long userId);
+
+    // Joins the caller's transaction when there is one, so the new version commits together with the change
+    @Transactional
+    @Query(value = "INSERT INTO user_data_version (user_id, version) VALUES (:userId, 1) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET version = user_data_version.version + 1 RETURNING version",
+           nativeQuery = true)
+    long bump(Long userId);
+}
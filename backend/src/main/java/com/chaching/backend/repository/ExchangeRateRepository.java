@@ -0,0 +1,7 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.ExchangeRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, String> {
+}
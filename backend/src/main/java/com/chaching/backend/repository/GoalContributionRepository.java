@@ -0,0 +1,8 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.GoalContribution;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface GoalContributionRepository extends JpaRepository<GoalContribution, Long> {
+    long countByGoalId(Long goalId);
+}
@@ -2,9 +2,19 @@ package com.chaching.backend.repository;
 
 import com.chaching.backend.model.Goal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface GoalRepository extends JpaRepository<Goal, Long> {
     List<Goal> findByUserId(Long userId);
+
+    // Adds in the database and returns the updated row in the same round trip; empty if the goal
+    // does not exist or belongs to someone else
+    @Transactional
+    @Query(value = "UPDATE goal SET current_amount_cents = COALESCE(current_amount_cents, 0) + :cents " +
+                   "WHERE id = :goalId AND user_id = :userId RETURNING *", nativeQuery = true)
+    Optional<Goal> addToCurrentAmount(Long goalId, Long userId, long cents);
 }
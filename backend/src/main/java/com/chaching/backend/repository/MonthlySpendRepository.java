@@ -0,0 +1,47 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.MonthlySpend;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MonthlySpendRepository extends JpaRepository<MonthlySpend, Long> {
+    // One row per category and currency
+    List<MonthlySpend> findByUserIdAndMonthStart(Long userId, LocalDate monthStart);
+
+    // Writers to a user's rollups take the lock shared and a rebuild takes it exclusively; both hold it until their
+    // transaction ends. Selected through a subquery because the lock functions return void.
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock_shared(:userId)) AS locked", nativeQuery = true)
+    int lockForWrite(Long userId);
+
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:userId)) AS locked", nativeQuery = true)
+    int lockForRebuild(Long userId);
+
+    // Two statements instead of ON CONFLICT DO UPDATE: create the zero row if missing, then add in place.
+    // Both are safe against concurrent writers to the same key.
+    @Modifying
+    @Query(value = "INSERT INTO monthly_spend (user_id, month_start, category, currency, total_cents, transaction_count) " +
+                   "VALUES (:userId, :monthStart, :category, :currency, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    void insertIfAbsent(Long userId, LocalDate monthStart, String category, String currency);
+
+    @Modifying
+    @Query("UPDATE MonthlySpend m SET m.totalCents = m.totalCents + :cents, m.transactionCount = m.transactionCount + :count " +
+           "WHERE m.userId = :userId AND m.monthStart = :monthStart AND m.category = :category AND m.currency = :currency")
+    int increment(Long userId, LocalDate monthStart, String category, String currency, long cents, long count);
+
+    // A rebuilt total replaces whatever row is already there
+    @Modifying
+    @Query(value = "INSERT INTO monthly_spend (user_id, month_start, category, currency, total_cents, transaction_count) " +
+                   "VALUES (:userId, :monthStart, :category, :currency, :totalCents, :count) " +
+                   "ON CONFLICT (user_id, month_start, category, currency) " +
+                   "DO UPDATE SET total_cents = EXCLUDED.total_cents, transaction_count = EXCLUDED.transaction_count",
+           nativeQuery = true)
+    void upsert(Long userId, LocalDate monthStart, String category, String currency, long totalCents, long count);
+
+    @Modifying
+    @Query("DELETE FROM MonthlySpend m WHERE m.userId = :userId")
+    int deleteByUserId(Long userId);
+}
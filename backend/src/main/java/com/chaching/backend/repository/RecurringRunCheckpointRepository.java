@@ -0,0 +1,29 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.RecurringRunCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RecurringRunCheckpointRepository extends JpaRepository<RecurringRunCheckpoint, Long> {
+    List<RecurringRunCheckpoint> findByRunDate(LocalDate runDate);
+
+    // Only ever moves forward, so two instances working the same partition cannot set it back
+    @Modifying
+    @Query(value = "INSERT INTO recurring_run_checkpoint (run_date, partition_no, last_user_id, generated, completed, updated_at) " +
+                   "VALUES (:runDate, :partitionNo, :lastUserId, :generated, :completed, now()) " +
+                   "ON CONFLICT (run_date, partition_no) DO UPDATE SET " +
+                   "last_user_id = GREATEST(recurring_run_checkpoint.last_user_id, EXCLUDED.last_user_id), " +
+                   "generated = recurring_run_checkpoint.generated + EXCLUDED.generated, " +
+                   "completed = recurring_run_checkpoint.completed OR EXCLUDED.completed, " +
+                   "updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void advance(LocalDate runDate, int partitionNo, Long lastUserId, long generated, boolean completed);
+
+    @Modifying
+    @Query("DELETE FROM RecurringRunCheckpoint c WHERE c.runDate < :before")
+    int deleteByRunDateBefore(LocalDate before);
+}
@@ -0,0 +1,39 @@
+package com.chaching.backend.repository;
+
+import com.chaching.backend.model.RecurringTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RecurringTransactionRepository extends JpaRepository<RecurringTransaction, Long> {
+    List<RecurringTransaction> findByUserIdOrderById(Long userId);
+
+    // The next due templates from fromUserId up to toUserId (exclusive), locked for the caller's transaction.
+    // SKIP LOCKED leaves rows another instance is already working on to that instance.
+    @Query(value = "SELECT * FROM recurring_transaction WHERE user_id >= :fromUserId AND user_id < :toUserId " +
+                   "AND next_run_date <= :today AND quarantined_at IS NULL ORDER BY user_id, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<RecurringTransaction> lockDue(long fromUserId, long toUserId, LocalDate today, int limit);
+
+    // What lockDue would return, without locking, to retry a failed chunk's templates one at a time
+    @Query(value = "SELECT * FROM recurring_transaction WHERE user_id >= :fromUserId AND user_id < :toUserId " +
+                   "AND next_run_date <= :today AND quarantined_at IS NULL ORDER BY user_id, id LIMIT :limit",
+           nativeQuery = true)
+    List<RecurringTransaction> findDue(long fromUserId, long toUserId, LocalDate today, int limit);
+
+    @Query(value = "SELECT * FROM recurring_transaction WHERE id = :id AND next_run_date <= :today " +
+                   "AND quarantined_at IS NULL FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<RecurringTransaction> lockDueById(long id, LocalDate today);
+
+    @Modifying
+    @Query("UPDATE RecurringTransaction r SET r.quarantinedAt = :at WHERE r.id = :id")
+    int quarantine(Long id, Instant at);
+
+    @Query("SELECT MAX(r.userId) FROM RecurringTransaction r")
+    Long findMaxUserId();
+}
@@ -1,10 +1,78 @@
 package com.chaching.backend.repository;
 
 import com.chaching.backend.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByUserId(Long userId);
+
+    // Keyset pages walk the (user_id, id) index instead of OFFSET-scanning
+    List<Transaction> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+
+    // Newest first, read backwards off the same index
+    List<Transaction> findByUserIdOrderByIdDesc(Long userId, Limit limit);
+
+    // Missing categories as CategorizationService.categorizeMissing sees them: null or blank
+    @Query("SELECT t FROM Transaction t WHERE t.userId = :userId AND (t.category IS NULL OR TRIM(t.category) = '') " +
+           "AND t.id > :afterId ORDER BY t.id")
+    List<Transaction> findUncategorizedAfterId(Long userId, Long afterId, Limit limit);
+
+    List<Transaction> findByUserIdAndDateBetweenAndIdGreaterThanOrderByIdAsc(
+            Long userId, LocalDate from, LocalDate to, Long afterId, Limit limit);
+
+    List<Transaction> findByUserIdAndCategoryAndDateBetweenAndIdGreaterThanOrderByIdAsc(
+            Long userId, String category, LocalDate from, LocalDate to, Long afterId, Limit limit);
+
+    // Summaries are grouped in SQL, per currency so each sum can be converted once; rows are
+    // [key..., currency, sum(amount), count]
+    @Query("SELECT t.date, t.currency, SUM(t.amount), COUNT(t) FROM Transaction t " +
+           "WHERE t.userId = :userId AND t.date BETWEEN :from AND :to " +
+           "GROUP BY t.date, t.currency")
+    List<Object[]> sumByDay(Long userId, LocalDate from, LocalDate to);
+
+    @Query("SELECT year(t.date), month(t.date), t.currency, SUM(t.amount), COUNT(t) FROM Transaction t " +
+           "WHERE t.userId = :userId AND t.date BETWEEN :from AND :to " +
+           "GROUP BY year(t.date), month(t.date), t.currency")
+    List<Object[]> sumByMonth(Long userId, LocalDate from, LocalDate to);
+
+    @Query("SELECT t.category, t.currency, SUM(t.amount), COUNT(t) FROM Transaction t " +
+           "WHERE t.userId = :userId AND t.date BETWEEN :from AND :to " +
+           "GROUP BY t.category, t.currency")
+    List<Object[]> sumByCategory(Long userId, LocalDate from, LocalDate to);
+
+    // Substring matches rank first, then fuzzy word matches by similarity; both use the trigram index.
+    // The pattern is the query wrapped in % with LIKE wildcards escaped.
+    @Query(value = "SELECT * FROM transaction WHERE user_id = :userId " +
+                   "AND (description ILIKE :pattern OR :query <% description) " +
+                   "ORDER BY description ILIKE :pattern DESC, word_similarity(:query, description) DESC, id DESC " +
+                   "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Transaction> search(Long userId, String query, String pattern, int limit, long offset);
+
+    // Lowest similarity a fuzzy match needs, for the rest of the current transaction
+    @Query(value = "SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)", nativeQuery = true)
+    String setWordSimilarityThreshold(String threshold);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.userId = :userId ORDER BY t.id")
+    Stream<Transaction> streamByUserId(Long userId);
+
+    // Expenses only, which have negative amounts. Rows are [year, month, category, currency, sum(amount), count]
+    @Query(value = "SELECT CAST(EXTRACT(YEAR FROM transaction_date) AS int), CAST(EXTRACT(MONTH FROM transaction_date) AS int), " +
+                   "category, currency, SUM(amount_cents), COUNT(*) FROM transaction " +
+                   "WHERE user_id = :userId AND transaction_date IS NOT NULL AND amount_cents < 0 " +
+                   "GROUP BY 1, 2, category, currency",
+           nativeQuery = true)
+    List<Object[]> sumExpensesByMonthAndCategory(Long userId);
 }
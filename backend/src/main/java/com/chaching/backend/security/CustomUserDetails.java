@@ -24,6 +24,15 @@ public class CustomUserDetails implements UserDetails {
         this.profilePicture = user.getProfilePicture();
     }
 
+    // Built straight from verified token claims; there is no password to carry
+    public CustomUserDetails(Long id, String email, String fullName, String profilePicture) {
+        this.id = id;
+        this.email = email;
+        this.password = null;
+        this.fullName = fullName;
+        this.profilePicture = profilePicture;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return null; // Or return roles/authorities if needed
@@ -0,0 +1,35 @@
+package com.chaching.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Short-lived copy of user records for the auth filter; UserService evicts an entry whenever it writes that user,
+// and the TTL bounds how stale another instance's copy can get
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, CustomUserDetails> users;
+
+    public UserDetailsCache(@Value("${auth.user-cache.ttl:30s}") Duration ttl,
+                            @Value("${auth.user-cache.max-size:10000}") long maxSize) {
+        this.users = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public CustomUserDetails get(String email, Function<String, CustomUserDetails> loader) {
+        return users.get(email, loader);
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            users.invalidate(email);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.User;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Local email/password accounts. Hashing happens on PasswordHashingService's pool, and the short step after it
+// (saving the account, signing the token) runs on the same hashing thread. The hashing pool's bounded queue
+// therefore limits the whole sign-in, and a burst is turned away with a 503 instead of queueing somewhere unbounded.
+@Slf4j
+@Service
+@Timed("chaching.service")
+public class AuthService {
+
+    private static final int MIN_PASSWORD_LENGTH = 8;
+
+    private final UserService userService;
+    private final JwtTokenService jwtTokenService;
+    private final PasswordHashingService passwordHashingService;
+
+    public AuthService(UserService userService,
+                       JwtTokenService jwtTokenService,
+                       PasswordHashingService passwordHashingService) {
+        this.userService = userService;
+        this.jwtTokenService = jwtTokenService;
+        this.passwordHashingService = passwordHashingService;
+    }
+
+    // Completes with a JWT for the new account
+    public CompletableFuture<String> signup(String email, String password, String fullName) {
+        String normalizedEmail = normalize(email);
+        if (normalizedEmail == null || password == null || password.length() < MIN_PASSWORD_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Email and a password of at least " + MIN_PASSWORD_LENGTH + " characters are required");
+        }
+        if (userService.existsByEmail(normalizedEmail)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An account with this email already exists");
+        }
+
+        return passwordHashingService.hash(password).thenApply(hash -> {
+            try {
+                return jwtTokenService.generateToken(userService.createUser(normalizedEmail, hash, fullName));
+            } catch (DataIntegrityViolationException e) {
+                // Lost a race with another sign-up for the same email
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "An account with this email already exists");
+            }
+        });
+    }
+
+    // Completes with a JWT, or fails with 401 without saying whether the email or the password was wrong
+    public CompletableFuture<String> login(String email, String password) {
+        String normalizedEmail = normalize(email);
+        if (normalizedEmail == null || password == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password");
+        }
+
+        Optional<User> account = userService.findByEmail(normalizedEmail);
+        String hash = account.map(User::getPassword).orElse(null);
+
+        return passwordHashingService.matches(password, hash).thenApply(matches -> {
+            if (!matches) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password");
+            }
+            User user = account.get();
+            if (passwordHashingService.needsRehash(hash)) {
+                rehash(user, password);
+            }
+            return jwtTokenService.generateToken(user);
+        });
+    }
+
+    // The cost setting changed since this hash was made. Done in the background; if the pool is busy the
+    // next login tries again.
+    private void rehash(User user, String password) {
+        try {
+            passwordHashingService.hash(password)
+                    .thenAccept(newHash -> userService.updatePasswordHash(user.getId(), newHash))
+                    .exceptionally(e -> {
+                        log.warn("Could not rehash password for user {}", user.getId(), e instanceof CompletionException ? e.getCause() : e);
+                        return null;
+                    });
+        } catch (ResponseStatusException e) {
+            log.debug("Hashing pool busy, rehash for user {} deferred", user.getId());
+        }
+    }
+
+    private static String normalize(String email) {
+        if (email == null || email.isBlank() || !email.contains("@")) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,27 @@
+package com.chaching.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Fixed-size pools for work that must neither queue behind nor crowd out what runs on the shared application
+// task executor. The queue is bounded and a full one rejects the task. Idle threads exit after a minute, so a
+// pool that is only used at night costs nothing during the day.
+final class BoundedExecutors {
+
+    private BoundedExecutors() {
+    }
+
+    static ExecutorService create(MeterRegistry meterRegistry, String name, int threads, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(name + "-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, pool, name);
+    }
+}
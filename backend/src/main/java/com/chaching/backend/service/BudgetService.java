@@ -1,24 +1,90 @@
 package com.chaching.backend.service;
 
 import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.BudgetStatus;
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.MonthlySpend;
+import com.chaching.backend.model.UserChangeEvent;
 import com.chaching.backend.repository.BudgetRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed("chaching.service")
 @RequiredArgsConstructor
 public class BudgetService {
 
     private final BudgetRepository budgetRepository;
+    private final SpendRollupService spendRollupService;
+    private final ExchangeRateService exchangeRateService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional(readOnly = true)
     public List<Budget> getBudgetsByUser(Long userId) {
         return budgetRepository.findByUserId(userId);
     }
 
     public Budget addBudget(Long userId, Budget budget) {
         budget.setUserId(userId);
-        return budgetRepository.save(budget);
+        budget.setCurrency(exchangeRateService.normalize(budget.getCurrency()));
+        Budget saved = budgetRepository.save(budget);
+        eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.BUDGET_ADDED, saved));
+        return saved;
+    }
+
+    @Transactional
+    public void deleteBudget(Long userId, Long budgetId) {
+        Budget budget = budgetRepository.findById(budgetId)
+                .filter(found -> userId.equals(found.getUserId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Budget not found"));
+        budgetRepository.delete(budget);
+        eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.BUDGET_DELETED, Map.of("id", budgetId)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<BudgetStatus> getBudgetStatus(Long userId, YearMonth month) {
+        return getBudgetStatus(userId, month, exchangeRateService.current());
+    }
+
+    // Reads the month's pre-aggregated rollup rows instead of the user's transactions. Each budget is reported in
+    // its own currency, with the category's spending in every currency converted into it.
+    @Transactional(readOnly = true)
+    public List<BudgetStatus> getBudgetStatus(Long userId, YearMonth month, ExchangeRates rates) {
+        Map<String, List<MonthlySpend>> spentByCategory = new HashMap<>();
+        Set<String> currencies = new HashSet<>();
+        for (MonthlySpend rollup : spendRollupService.getMonth(userId, month)) {
+            spentByCategory.computeIfAbsent(rollup.getCategory(), category -> new ArrayList<>()).add(rollup);
+            currencies.add(rollup.getCurrency());
+        }
+        List<Budget> budgets = budgetRepository.findByUserId(userId);
+        budgets.forEach(budget -> currencies.add(budget.getCurrency()));
+        ExchangeRates converting = exchangeRateService.covering(rates, currencies);
+
+        return budgets.stream()
+                .map(budget -> {
+                    String currency = converting.resolve(budget.getCurrency());
+                    long spentCents = 0;
+                    for (MonthlySpend rollup : spentByCategory.getOrDefault(budget.getCategory(), List.of())) {
+                        spentCents = Math.addExact(spentCents, converting.convert(rollup.getTotalCents(), rollup.getCurrency(), currency));
+                    }
+                    Money budgeted = Money.ofCents(Money.centsOf(budget.getAmount()));
+                    Money spent = Money.ofCents(spentCents);
+                    return new BudgetStatus(budget.getId(), budget.getCategory(), budgeted, spent, budgeted.minus(spent), currency);
+                })
+                .toList();
     }
 }
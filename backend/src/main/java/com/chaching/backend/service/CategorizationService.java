@@ -0,0 +1,139 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.CategoryRule;
+import com.chaching.backend.model.CategoryRulesChangedEvent;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.repository.CategoryRuleRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Keyword rules that fill in a transaction's category when it arrives without one. Each rule set is compiled
+// into a KeywordMatcher once and replaced whole when it changes, so categorizing never waits on a rebuild and
+// never sees half a rule set. Global rules are reloaded on change and on a timer, which also picks up changes
+// made through other instances; a user's rules are cached and expire after user-rules-ttl for the same reason.
+@Slf4j
+@Service
+@Timed("chaching.service")
+public class CategorizationService {
+
+    private static final int MAX_KEYWORD_LENGTH = 100;
+
+    private final CategoryRuleRepository ruleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<CompiledRules> globalRules = new AtomicReference<>(new CompiledRules(List.of(), KeywordMatcher.EMPTY));
+    private final LoadingCache<Long, KeywordMatcher> userRules;
+
+    public CategorizationService(CategoryRuleRepository ruleRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${categorization.user-rules-ttl:5m}") Duration userRulesTtl,
+                                 @Value("${categorization.user-rules-max-size:10000}") long userRulesMaxSize) {
+        this.ruleRepository = ruleRepository;
+        this.eventPublisher = eventPublisher;
+        this.userRules = Caffeine.newBuilder()
+                .expireAfterWrite(userRulesTtl)
+                .maximumSize(userRulesMaxSize)
+                .build(userId -> compile(ruleRepository.findByUserIdOrderById(userId)));
+    }
+
+    // Fills in transactions with no category; the rule sets are looked up once for the whole batch, and not at
+    // all when every transaction already has one
+    public void categorizeMissing(Long userId, Collection<Transaction> transactions) {
+        UnaryOperator<String> categorizer = null;
+        for (Transaction transaction : transactions) {
+            if (transaction.getCategory() == null || transaction.getCategory().isBlank()) {
+                if (categorizer == null) {
+                    categorizer = categorizerFor(userId);
+                }
+                transaction.setCategory(categorizer.apply(transaction.getDescription()));
+            }
+        }
+    }
+
+    // Maps a description to a category, or null; a match in the user's own rules wins over any global match
+    public UnaryOperator<String> categorizerFor(Long userId) {
+        KeywordMatcher own = userRules.get(userId);
+        KeywordMatcher global = globalRules.get().matcher();
+        return description -> {
+            String category = own.match(description);
+            return category != null ? category : global.match(description);
+        };
+    }
+
+    // A null userId means the global rules throughout
+    @Transactional(readOnly = true)
+    public List<CategoryRule> getRules(Long userId) {
+        return userId == null ? ruleRepository.findByUserIdIsNullOrderById() : ruleRepository.findByUserIdOrderById(userId);
+    }
+
+    @Transactional
+    public CategoryRule addRule(Long userId, CategoryRule rule) {
+        String keyword = rule.getKeyword() == null ? "" : rule.getKeyword().trim();
+        String category = rule.getCategory() == null ? "" : rule.getCategory().trim();
+        if (keyword.isEmpty() || keyword.length() > MAX_KEYWORD_LENGTH || category.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A rule needs a keyword of 1 to " + MAX_KEYWORD_LENGTH + " characters and a category");
+        }
+        CategoryRule saved = ruleRepository.save(new CategoryRule(null, userId, keyword, category));
+        eventPublisher.publishEvent(new CategoryRulesChangedEvent(userId));
+        return saved;
+    }
+
+    @Transactional
+    public void deleteRule(Long userId, Long ruleId) {
+        CategoryRule rule = ruleRepository.findById(ruleId)
+                .filter(found -> Objects.equals(found.getUserId(), userId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Rule not found"));
+        ruleRepository.delete(rule);
+        eventPublisher.publishEvent(new CategoryRulesChangedEvent(userId));
+    }
+
+    // After commit, so the recompiled set is read back with the change in it
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRulesChanged(CategoryRulesChangedEvent event) {
+        if (event.userId() == null) {
+            reloadGlobalRules();
+        } else {
+            userRules.put(event.userId(), compile(ruleRepository.findByUserIdOrderById(event.userId())));
+        }
+    }
+
+    // Synchronized so an older read can never be swapped in over a newer one
+    @Scheduled(fixedDelayString = "${categorization.global-refresh-interval-ms:60000}")
+    public synchronized void reloadGlobalRules() {
+        List<CategoryRule> rules = ruleRepository.findByUserIdIsNullOrderById();
+        if (!rules.equals(globalRules.get().rules())) {
+            globalRules.set(new CompiledRules(rules, compile(rules)));
+            log.info("Compiled {} global category rules", rules.size());
+        }
+    }
+
+    // Earlier rules win ties between keywords of the same length
+    private static KeywordMatcher compile(List<CategoryRule> rules) {
+        if (rules.isEmpty()) {
+            return KeywordMatcher.EMPTY;
+        }
+        return new KeywordMatcher(rules.stream()
+                .map(rule -> new KeywordMatcher.Keyword(rule.getKeyword(), rule.getCategory()))
+                .toList());
+    }
+
+    private record CompiledRules(List<CategoryRule> rules, KeywordMatcher matcher) {
+    }
+}
@@ -0,0 +1,215 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.BudgetStatus;
+import com.chaching.backend.model.Dashboard;
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.MonthlySpend;
+import com.chaching.backend.model.Transaction;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Loads the dashboard's parts side by side. Each part has its own deadline; one that fails or runs late is
+// left out of the response instead of failing the whole dashboard. Parts from all requests run on one small
+// pool of their own, so dashboards never hold more than that many database connections between them, and a
+// part that runs late is stopped rather than left holding its thread and connection.
+@Slf4j
+@Service
+@Timed("chaching.service")
+public class DashboardService {
+
+    private final TransactionService transactionService;
+    private final BudgetService budgetService;
+    private final GoalService goalService;
+    private final SpendRollupService spendRollupService;
+    private final ExchangeRateService exchangeRateService;
+    // Carries the caller's security context onto the worker threads, so replica routing still sees who is asking
+    private final ExecutorService executor;
+    private final TransactionTemplate partTransaction;
+    private final long partTimeoutMillis;
+    private final int recentTransactions;
+
+    public DashboardService(TransactionService transactionService,
+                            BudgetService budgetService,
+                            GoalService goalService,
+                            SpendRollupService spendRollupService,
+                            ExchangeRateService exchangeRateService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${dashboard.part-timeout:2s}") Duration partTimeout,
+                            @Value("${dashboard.max-concurrent-parts:8}") int maxConcurrentParts,
+                            @Value("${dashboard.queue-capacity:100}") int queueCapacity,
+                            @Value("${dashboard.recent-transactions:20}") int recentTransactions) {
+        this.transactionService = transactionService;
+        this.budgetService = budgetService;
+        this.goalService = goalService;
+        this.spendRollupService = spendRollupService;
+        this.exchangeRateService = exchangeRateService;
+        this.executor = new DelegatingSecurityContextExecutorService(
+                BoundedExecutors.create(meterRegistry, "dashboard", maxConcurrentParts, queueCapacity));
+        this.partTimeoutMillis = partTimeout.toMillis();
+        // Every statement a part runs is cancelled by the database once the part's deadline has passed. The
+        // timeout is in whole seconds, so it is rounded up. Parts only read; one snapshot each is what
+        // getRecentTransactions asks for and does no harm to the others.
+        this.partTransaction = new TransactionTemplate(transactionManager);
+        this.partTransaction.setReadOnly(true);
+        this.partTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.partTransaction.setTimeout((int) Math.max(1, (partTimeoutMillis + 999) / 1000));
+        this.recentTransactions = recentTransactions;
+    }
+
+    // Summary figures are in the given currency, converted at the given rates; every part uses the same ones
+    public Dashboard getDashboard(Long userId, YearMonth month, ExchangeRates rates, String currency) {
+        List<String> failedParts = new ArrayList<>();
+
+        CompletableFuture<List<Transaction>> transactions = load(
+                () -> transactionService.getRecentTransactions(userId, recentTransactions));
+        CompletableFuture<List<BudgetStatus>> budgets = load(() -> budgetService.getBudgetStatus(userId, month, rates));
+        CompletableFuture<List<Goal>> goals = load(() -> goalService.getGoalsByUser(userId));
+        CompletableFuture<List<MonthlySpend>> spending = load(() -> spendRollupService.getMonth(userId, month));
+
+        List<Transaction> recent = await("recentTransactions", transactions, failedParts);
+        List<BudgetStatus> budgetStatus = await("budgets", budgets, failedParts);
+        List<Goal> goalList = await("goals", goals, failedParts);
+        List<MonthlySpend> monthSpend = await("spending", spending, failedParts);
+
+        Dashboard.Summary summary = null;
+        try {
+            summary = summarize(monthSpend, budgetStatus, goalList, rates, currency);
+        } catch (RuntimeException e) {
+            log.warn("Dashboard part summary failed", e);
+            failedParts.add("summary");
+        }
+        return new Dashboard(recent, budgetStatus, goalList, summary, failedParts);
+    }
+
+    // A part still running at its deadline is interrupted, and its statement is cancelled by the transaction
+    // timeout, so it hands its thread and connection back for the dashboards after it. When the pool's queue is
+    // full the part fails straight away.
+    private <T> CompletableFuture<T> load(Supplier<T> part) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(partTransaction.execute(status -> part.get()));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.orTimeout(partTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((value, e) -> {
+                    if (e != null) {
+                        task.cancel(true);
+                    }
+                });
+    }
+
+    // Deadlines run from submission, so waiting on the parts in turn never stretches past the slowest one
+    private static <T> T await(String name, CompletableFuture<T> part, List<String> failedParts) {
+        try {
+            return part.join();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                log.warn("Dashboard part {} timed out", name);
+            } else {
+                log.warn("Dashboard part {} failed", name, cause);
+            }
+            failedParts.add(name);
+            return null;
+        }
+    }
+
+    // Every figure is converted straight from the currency it is kept in, so budgeted minus spent on budgeted
+    // categories is exactly remaining; converting the budgets' already converted figures would round twice
+    private Dashboard.Summary summarize(List<MonthlySpend> monthSpend, List<BudgetStatus> budgets, List<Goal> goals,
+                                        ExchangeRates rates, String currency) {
+        Set<String> currencies = new HashSet<>();
+        if (monthSpend != null) {
+            monthSpend.forEach(rollup -> currencies.add(rollup.getCurrency()));
+        }
+        if (budgets != null) {
+            budgets.forEach(budget -> currencies.add(budget.getCurrency()));
+        }
+        if (goals != null) {
+            goals.forEach(goal -> currencies.add(goal.getCurrency()));
+        }
+        ExchangeRates converting = exchangeRateService.covering(rates, currencies);
+
+        Money spent = null;
+        Map<String, Long> spentByCategory = new HashMap<>();
+        if (monthSpend != null) {
+            long cents = 0;
+            for (MonthlySpend rollup : monthSpend) {
+                long converted = converting.convert(rollup.getTotalCents(), rollup.getCurrency(), currency);
+                cents += converted;
+                spentByCategory.merge(rollup.getCategory(), converted, Long::sum);
+            }
+            spent = Money.ofCents(cents);
+        }
+
+        Money budgeted = null;
+        Money remaining = null;
+        if (budgets != null) {
+            long budgetedCents = 0;
+            long budgetedSpentCents = 0;
+            for (BudgetStatus budget : budgets) {
+                budgetedCents += converting.convert(Money.centsOf(budget.getBudgeted()), budget.getCurrency(), currency);
+                budgetedSpentCents += spentByCategory.getOrDefault(budget.getCategory(), 0L);
+            }
+            budgeted = Money.ofCents(budgetedCents);
+            if (monthSpend != null) {
+                remaining = Money.ofCents(budgetedCents - budgetedSpentCents);
+            }
+        }
+
+        Money saved = null;
+        Money targets = null;
+        if (goals != null) {
+            long savedCents = 0;
+            long targetCents = 0;
+            for (Goal goal : goals) {
+                savedCents += converting.convert(Money.centsOf(goal.getCurrentAmount()), goal.getCurrency(), currency);
+                targetCents += converting.convert(Money.centsOf(goal.getTargetAmount()), goal.getCurrency(), currency);
+            }
+            saved = Money.ofCents(savedCents);
+            targets = Money.ofCents(targetCents);
+        }
+
+        return new Dashboard.Summary(spent, budgeted, remaining, saved, targets, currency);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.UserChangeEvent;
+import com.chaching.backend.repository.DataVersionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+// Per-user data versions for conditional GETs. Reads are served from a short-lived local copy; this instance
+// drops its copy as soon as a change commits, and the TTL bounds how long another instance's copy can lag.
+@Service
+@Timed("chaching.service")
+public class DataVersionService {
+
+    private final DataVersionRepository dataVersionRepository;
+    private final Cache<Long, Long> versions;
+
+    public DataVersionService(DataVersionRepository dataVersionRepository,
+                              @Value("${data-version.cache-ttl:2s}") Duration ttl,
+                              @Value("${data-version.cache-max-size:100000}") long maxSize) {
+        this.dataVersionRepository = dataVersionRepository;
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public long currentVersion(Long userId) {
+        return versions.get(userId, id -> dataVersionRepository.findVersion(id).orElse(0L));
+    }
+
+    // Runs inside the publishing service's transaction, so the bump and the change commit or roll back together
+    @EventListener
+    public void bump(UserChangeEvent event) {
+        dataVersionRepository.bump(event.getUserId());
+    }
+
+    // Until the change commits the old version still describes what readers can see, so only drop it afterwards
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evict(UserChangeEvent event) {
+        versions.invalidate(event.getUserId());
+    }
+}
@@ -0,0 +1,175 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.ExchangeRate;
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.ExchangeRatesChangedEvent;
+import com.chaching.backend.repository.ExchangeRateRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+// Exchange rates against the base currency, kept in the exchange_rate table and held in memory as one immutable
+// ExchangeRates. Readers take the current set with a single volatile read; a change builds a new set and swaps
+// it in, so summaries never wait on a reload and never see half of one. The set is reloaded on change and on a
+// timer, which also picks up changes made through other instances. currency.rates-file, when set, is imported
+// into the table at startup.
+@Slf4j
+@Service
+@Timed("chaching.service")
+public class ExchangeRateService {
+
+    private static final Pattern CODE = Pattern.compile("[A-Z]{3}");
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String base;
+    private final String ratesFile;
+    private final AtomicReference<ExchangeRates> current;
+
+    public ExchangeRateService(ExchangeRateRepository exchangeRateRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${currency.base:USD}") String base,
+                               @Value("${currency.rates-file:}") String ratesFile) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.eventPublisher = eventPublisher;
+        this.base = base.trim().toUpperCase(Locale.ROOT);
+        this.ratesFile = ratesFile;
+        this.current = new AtomicReference<>(new ExchangeRates(this.base, 0, Map.of(this.base, BigDecimal.ONE)));
+    }
+
+    public ExchangeRates current() {
+        return current.get();
+    }
+
+    // The code to store for a currency given on a write: upper-cased, the base currency when none is given
+    public String normalize(String currency) {
+        return require(current(), currency);
+    }
+
+    // For a target currency given on a read, checked against the rates the read converts with
+    public String require(ExchangeRates rates, String currency) {
+        if (currency == null || currency.isBlank()) {
+            return rates.base();
+        }
+        String code = currency.trim().toUpperCase(Locale.ROOT);
+        if (!CODE.matcher(code).matches() || !rates.supports(code)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown currency " + currency.trim());
+        }
+        return code;
+    }
+
+    // Rates that cover every given currency: the given ones, or else the set reloaded once. A transaction can be in
+    // a currency another instance added a rate for since this one last reloaded.
+    public ExchangeRates covering(ExchangeRates rates, Collection<String> currencies) {
+        if (currencies.stream().allMatch(rates::supports)) {
+            return rates;
+        }
+        reloadRates();
+        ExchangeRates reloaded = current();
+        for (String currency : currencies) {
+            if (!reloaded.supports(currency)) {
+                throw new IllegalStateException("No exchange rate for " + currency);
+            }
+        }
+        return reloaded;
+    }
+
+    // Adds or replaces the given rates; currencies not mentioned keep theirs
+    @Transactional
+    public void updateRates(Map<String, BigDecimal> rates) {
+        exchangeRateRepository.saveAll(validate(rates));
+        eventPublisher.publishEvent(new ExchangeRatesChangedEvent());
+    }
+
+    // After commit, so the new set is read back with the change in it
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatesChanged(ExchangeRatesChangedEvent event) {
+        reloadRates();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void importRatesFile() {
+        if (ratesFile.isBlank()) {
+            return;
+        }
+        Map<String, BigDecimal> rates = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(Path.of(ratesFile))) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = trimmed.split(",");
+                if (fields.length != 2) {
+                    throw new IllegalStateException("Expected currency,rate in " + ratesFile + ": " + trimmed);
+                }
+                rates.put(fields[0].trim(), new BigDecimal(fields[1].trim()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read exchange rates from " + ratesFile, e);
+        }
+        exchangeRateRepository.saveAll(validate(rates));
+        reloadRates();
+    }
+
+    // Synchronized so an older read can never be swapped in over a newer one
+    @Scheduled(fixedDelayString = "${currency.refresh-interval-ms:60000}")
+    public synchronized void reloadRates() {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        long version = 0;
+        for (ExchangeRate rate : exchangeRateRepository.findAll()) {
+            rates.put(rate.getCurrency(), rate.getRate());
+            if (rate.getUpdatedAt() != null) {
+                version = Math.max(version, rate.getUpdatedAt().toEpochMilli());
+            }
+        }
+        rates.put(base, BigDecimal.ONE);
+        ExchangeRates loaded = new ExchangeRates(base, version, rates);
+        if (!loaded.equals(current.get())) {
+            current.set(loaded);
+            log.info("Loaded {} exchange rates against {}", rates.size() - 1, base);
+        }
+    }
+
+    // Rates are stored against the base, so the base's own rate is always 1
+    private List<ExchangeRate> validate(Map<String, BigDecimal> rates) {
+        Instant now = Instant.now();
+        return rates.entrySet().stream()
+                .map(entry -> {
+                    String code = entry.getKey() == null ? "" : entry.getKey().trim().toUpperCase(Locale.ROOT);
+                    BigDecimal rate = entry.getValue();
+                    if (!CODE.matcher(code).matches() || rate == null || rate.signum() <= 0) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Rates need a three-letter currency code and a positive rate");
+                    }
+                    if (code.equals(base) && rate.compareTo(BigDecimal.ONE) != 0) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The rate of " + base + " is always 1");
+                    }
+                    return new ExchangeRate(code, rate, now);
+                })
+                .toList();
+    }
+}
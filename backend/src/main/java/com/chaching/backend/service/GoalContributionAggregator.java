@@ -0,0 +1,117 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.GoalContribution;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.repository.GoalContributionRepository;
+import com.chaching.backend.repository.GoalRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Group commit for hot goals: contributions queue up and each flush turns all of a goal's pending
+// contributions into one UPDATE plus a batch of ledger rows. Callers get their future completed
+// only after that transaction commits.
+@Component
+@RequiredArgsConstructor
+public class GoalContributionAggregator {
+
+    private static final Comparator<GoalKey> KEY_ORDER = Comparator.comparing(GoalKey::goalId)
+            .thenComparing(GoalKey::userId);
+
+    private final GoalRepository goalRepository;
+    private final GoalContributionRepository goalContributionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentLinkedQueue<PendingContribution> pending = new ConcurrentLinkedQueue<>();
+
+    @Value("${goals.contributions.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    public CompletableFuture<Goal> submit(Long userId, Long goalId, Money amount) {
+        PendingContribution contribution = new PendingContribution(userId, goalId, amount, new CompletableFuture<>());
+        pending.add(contribution);
+        return contribution.result();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${goals.contributions.flush-interval-ms:20}")
+    public void flush() {
+        while (!pending.isEmpty()) {
+            List<PendingContribution> batch = new ArrayList<>();
+            PendingContribution next;
+            while (batch.size() < maxBatchSize && (next = pending.poll()) != null) {
+                batch.add(next);
+            }
+            apply(batch);
+        }
+    }
+
+    private void apply(List<PendingContribution> batch) {
+        // Goals are updated in id order so concurrent flushes cannot deadlock on each other's rows
+        Map<GoalKey, List<PendingContribution>> byGoal = new TreeMap<>(KEY_ORDER);
+        for (PendingContribution contribution : batch) {
+            byGoal.computeIfAbsent(new GoalKey(contribution.goalId(), contribution.userId()), key -> new ArrayList<>())
+                    .add(contribution);
+        }
+
+        Map<GoalKey, Goal> updated;
+        try {
+            updated = transactionTemplate.execute(status -> {
+                Map<GoalKey, Goal> goals = new HashMap<>();
+                List<GoalContribution> ledger = new ArrayList<>(batch.size());
+                LocalDateTime now = LocalDateTime.now();
+
+                byGoal.forEach((key, contributions) -> {
+                    long total = 0;
+                    for (PendingContribution contribution : contributions) {
+                        total = Math.addExact(total, contribution.amount().cents());
+                    }
+                    goalRepository.addToCurrentAmount(key.goalId(), key.userId(), total).ifPresent(goal -> {
+                        goals.put(key, goal);
+                        for (PendingContribution contribution : contributions) {
+                            ledger.add(new GoalContribution(null, key.goalId(), key.userId(), contribution.amount(), now));
+                        }
+                    });
+                });
+                goalContributionRepository.saveAll(ledger);
+                return goals;
+            });
+        } catch (RuntimeException e) {
+            batch.forEach(contribution -> contribution.result().completeExceptionally(e));
+            return;
+        }
+
+        byGoal.forEach((key, contributions) -> {
+            Goal goal = updated.get(key);
+            for (PendingContribution contribution : contributions) {
+                if (goal != null) {
+                    contribution.result().complete(goal);
+                } else {
+                    contribution.result().completeExceptionally(new ResponseStatusException(HttpStatus.NOT_FOUND, "Goal not found"));
+                }
+            }
+        });
+    }
+
+    private record GoalKey(Long goalId, Long userId) {
+    }
+
+    private record PendingContribution(Long userId, Long goalId, Money amount, CompletableFuture<Goal> result) {
+    }
+}
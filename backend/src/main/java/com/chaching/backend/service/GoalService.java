@@ -1,38 +1,80 @@
 package com.chaching.backend.service;
 
 import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.GoalContribution;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.UserChangeEvent;
+import com.chaching.backend.repository.GoalContributionRepository;
 import com.chaching.backend.repository.GoalRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 @Service
+@Timed("chaching.service")
 @RequiredArgsConstructor
 public class GoalService {
 
     private final GoalRepository goalRepository;
+    private final GoalContributionRepository goalContributionRepository;
+    private final GoalContributionAggregator goalContributionAggregator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Value("${goals.contributions.batching:false}")
+    private boolean batchContributions;
+
+    @Transactional(readOnly = true)
     public List<Goal> getGoalsByUser(Long userId) {
         return goalRepository.findByUserId(userId);
     }
 
-    public Goal contributeToGoal(Long userId, Long goalId, Double amount) {
-        Optional<Goal> optionalGoal = goalRepository.findById(goalId);
+    // The goal's contribution ledger is kept as a record of the money moved
+    @Transactional
+    public void deleteGoal(Long userId, Long goalId) {
+        Goal goal = goalRepository.findById(goalId)
+                .filter(found -> userId.equals(found.getUserId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Goal not found"));
+        goalRepository.delete(goal);
+        eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.GOAL_DELETED, Map.of("id", goalId)));
+    }
 
-        if (optionalGoal.isEmpty()) {
-            throw new RuntimeException("Goal not found");
+    // Either way the goal update and its ledger row commit together. The batched path waits for the aggregator's
+    // transaction, so it announces the change after that commit rather than holding a transaction open to wait.
+    public Goal contributeToGoal(Long userId, Long goalId, Money amount) {
+        if (amount == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "amount is required");
         }
-
-        Goal goal = optionalGoal.get();
-
-        if (!goal.getUserId().equals(userId)) {
-            throw new RuntimeException("Unauthorized");
+        if (batchContributions) {
+            Goal goal;
+            try {
+                goal = goalContributionAggregator.submit(userId, goalId, amount).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.GOAL_CONTRIBUTION, goal));
+            return goal;
         }
 
-        goal.setCurrentAmount(goal.getCurrentAmount() + amount);
-
-        return goalRepository.save(goal);
+        return transactionTemplate.execute(status -> {
+            // The increment and the ownership check happen in one statement, so concurrent contributions cannot overwrite each other.
+            // Another user's goal is reported as missing, as deleteGoal and the batched path do.
+            Goal goal = goalRepository.addToCurrentAmount(goalId, userId, amount.cents())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Goal not found"));
+            goalContributionRepository.save(new GoalContribution(null, goalId, userId, amount, LocalDateTime.now()));
+            eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.GOAL_CONTRIBUTION, goal));
+            return goal;
+        });
     }
 }
@@ -0,0 +1,170 @@
+package com.chaching.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Finds which of many keywords occur in a piece of text in a single pass (Aho-Corasick), so matching costs the
+// same with ten keywords or ten thousand. The automaton is compiled into a dense transition table over just the
+// characters the keywords use; every other character maps to column 0. Matching is case-insensitive, and a
+// keyword that starts or ends with a letter or digit only matches on a word boundary, so "bar" does not match
+// "barber". Immutable once built, so it is safe to share between threads and to swap out whole.
+public final class KeywordMatcher {
+
+    public static final KeywordMatcher EMPTY = new KeywordMatcher(List.of());
+
+    // Column per character; ASCII through an array since nearly all text is ASCII
+    private final int[] asciiColumns = new int[128];
+    private final Map<Character, Integer> otherColumns = new HashMap<>();
+    private final int width;
+    // transitions[state * width + column] is the next state
+    private final int[] transitions;
+    // Index of the keyword ending at a state, or -1
+    private final int[] output;
+    // Nearest state down the failure chain that ends a keyword, or -1
+    private final int[] outputLink;
+    private final String[] keywords;
+    private final String[] values;
+
+    public record Keyword(String keyword, String value) {
+    }
+
+    public KeywordMatcher(List<Keyword> entries) {
+        List<String> keywordList = new ArrayList<>();
+        List<String> valueList = new ArrayList<>();
+        Map<Character, Integer> alphabet = new HashMap<>();
+        for (Keyword entry : entries) {
+            String keyword = entry.keyword() == null ? "" : lower(entry.keyword().trim());
+            if (!keyword.isEmpty()) {
+                keywordList.add(keyword);
+                valueList.add(entry.value());
+                for (int i = 0; i < keyword.length(); i++) {
+                    alphabet.putIfAbsent(keyword.charAt(i), alphabet.size() + 1);
+                }
+            }
+        }
+        this.keywords = keywordList.toArray(String[]::new);
+        this.values = valueList.toArray(String[]::new);
+        this.width = alphabet.size() + 1;
+        alphabet.forEach((c, column) -> {
+            if (c < 128) {
+                asciiColumns[c] = column;
+            } else {
+                otherColumns.put(c, column);
+            }
+        });
+
+        // Trie first, with 0 meaning "no edge"; state 0 is the root
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new int[width]);
+        ends.add(-1);
+        for (int k = 0; k < keywords.length; k++) {
+            int state = 0;
+            for (int i = 0; i < keywords[k].length(); i++) {
+                int column = alphabet.get(keywords[k].charAt(i));
+                if (trie.get(state)[column] == 0) {
+                    trie.get(state)[column] = trie.size();
+                    trie.add(new int[width]);
+                    ends.add(-1);
+                }
+                state = trie.get(state)[column];
+            }
+            // The same keyword twice keeps the first
+            if (ends.get(state) == -1) {
+                ends.set(state, k);
+            }
+        }
+
+        int states = trie.size();
+        this.transitions = new int[states * width];
+        this.output = new int[states];
+        this.outputLink = new int[states];
+        int[] failure = new int[states];
+        for (int s = 0; s < states; s++) {
+            output[s] = ends.get(s);
+            outputLink[s] = -1;
+        }
+
+        // Breadth first, so a state's failure target is always finished before the state itself
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < width; column++) {
+            int child = trie.get(0)[column];
+            transitions[column] = child;
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = failure[state];
+            outputLink[state] = output[fail] >= 0 ? fail : outputLink[fail];
+            for (int column = 0; column < width; column++) {
+                int child = trie.get(state)[column];
+                if (child != 0) {
+                    failure[child] = transitions[fail * width + column];
+                    transitions[state * width + column] = child;
+                    queue.add(child);
+                } else {
+                    transitions[state * width + column] = transitions[fail * width + column];
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    // The value of the best keyword found in the text: the longest one, and of those the one listed first.
+    // Null when nothing matches.
+    public String match(String text) {
+        if (text == null || keywords.length == 0) {
+            return null;
+        }
+        int best = -1;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * width + columnOf(Character.toLowerCase(text.charAt(i)))];
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int k = output[s];
+                if (better(k, best) && onWordBoundary(text, i + 1 - keywords[k].length(), i + 1, keywords[k])) {
+                    best = k;
+                }
+            }
+        }
+        return best < 0 ? null : values[best];
+    }
+
+    private int columnOf(char c) {
+        return c < 128 ? asciiColumns[c] : otherColumns.getOrDefault(c, 0);
+    }
+
+    private boolean better(int candidate, int best) {
+        if (best < 0) {
+            return true;
+        }
+        int lengths = Integer.compare(keywords[candidate].length(), keywords[best].length());
+        return lengths > 0 || (lengths == 0 && candidate < best);
+    }
+
+    private static boolean onWordBoundary(String text, int start, int end, String keyword) {
+        if (Character.isLetterOrDigit(keyword.charAt(0)) && start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+            return false;
+        }
+        return !Character.isLetterOrDigit(keyword.charAt(keyword.length() - 1))
+                || end >= text.length()
+                || !Character.isLetterOrDigit(text.charAt(end));
+    }
+
+    // Per character, so a match position in the lowered keyword is the same position in the original text
+    private static String lower(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
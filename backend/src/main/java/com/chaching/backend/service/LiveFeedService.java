@@ -0,0 +1,159 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.UserChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// Keeps the open server-sent event streams per user. An idle stream is just an async request parked
+// in Tomcat plus one map entry; no thread is held until there is something to send.
+@Slf4j
+@Service
+public class LiveFeedService {
+
+    private final Map<Long, List<SseEmitter>> streams = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor taskExecutor;
+    private final ExecutorService heartbeatExecutor;
+    private final Set<SseEmitter> pendingHeartbeats = ConcurrentHashMap.newKeySet();
+    private final long streamTimeoutMillis;
+    private final int maxStreamsPerUser;
+
+    public LiveFeedService(ObjectMapper objectMapper,
+                           @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                           @Value("${live-feed.stream-timeout:30m}") Duration streamTimeout,
+                           @Value("${live-feed.max-streams-per-user:5}") int maxStreamsPerUser,
+                           @Value("${live-feed.heartbeat-threads:4}") int heartbeatThreads,
+                           @Value("${live-feed.heartbeat-queue-capacity:1000}") int heartbeatQueueCapacity,
+                           MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.taskExecutor = taskExecutor;
+        this.heartbeatExecutor = BoundedExecutors.create(meterRegistry, "live-feed-heartbeat",
+                heartbeatThreads, heartbeatQueueCapacity);
+        this.streamTimeoutMillis = streamTimeout.toMillis();
+        this.maxStreamsPerUser = maxStreamsPerUser;
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        streams.compute(userId, (id, userStreams) -> {
+            List<SseEmitter> updated = userStreams == null ? new CopyOnWriteArrayList<>() : userStreams;
+            if (updated.size() >= maxStreamsPerUser) {
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many open live streams");
+            }
+            updated.add(emitter);
+            return updated;
+        });
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> remove(userId, emitter));
+        return emitter;
+    }
+
+    // Runs after the publishing transaction commits (or straight away when there is none), so clients
+    // never see a change that was rolled back. The payload is serialized once for all of the user's streams
+    // and written off the request thread so a slow client cannot hold up the caller.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(UserChangeEvent event) {
+        List<SseEmitter> userStreams = streams.get(event.getUserId());
+        if (userStreams == null || userStreams.isEmpty()) {
+            return;
+        }
+
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event.getPayload());
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize {} event for user {}", event.getType().eventName(), event.getUserId(), e);
+            return;
+        }
+
+        taskExecutor.execute(() -> {
+            for (SseEmitter emitter : userStreams) {
+                send(event.getUserId(), emitter, SseEmitter.event()
+                        .name(event.getType().eventName())
+                        .data(data, MediaType.APPLICATION_JSON));
+            }
+        });
+    }
+
+    // A comment line every so often keeps proxies from closing idle streams and finds clients that went away.
+    // The writes happen on their own pool, so a client that stops reading holds up neither the scheduler nor
+    // the other streams. A stream whose last ping has not gone out yet is skipped; one that cannot be queued
+    // this round gets its ping on the next.
+    @Scheduled(fixedDelayString = "${live-feed.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        streams.forEach((userId, userStreams) -> {
+            for (SseEmitter emitter : userStreams) {
+                if (!pendingHeartbeats.add(emitter)) {
+                    continue;
+                }
+                try {
+                    heartbeatExecutor.execute(() -> {
+                        try {
+                            send(userId, emitter, SseEmitter.event().comment("ping"));
+                        } finally {
+                            pendingHeartbeats.remove(emitter);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pendingHeartbeats.remove(emitter);
+                }
+            }
+        });
+    }
+
+    // Ends the streams before the web server's graceful shutdown starts, which would otherwise wait on them;
+    // clients reconnect to another instance
+    @EventListener(ContextClosedEvent.class)
+    public void closeAll() {
+        streams.values().forEach(userStreams -> userStreams.forEach(SseEmitter::complete));
+        streams.clear();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        streams.computeIfPresent(userId, (id, userStreams) -> {
+            userStreams.remove(emitter);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+}
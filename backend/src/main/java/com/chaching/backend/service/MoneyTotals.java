@@ -0,0 +1,85 @@
+package com.chaching.backend.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Sums and counts of cents per key, kept in flat long arrays. A key is mapped to a bucket once;
+// after that, adding a row is two array writes with no boxing or allocation. Sums overflow loudly.
+public class MoneyTotals<K> {
+
+    private final Map<K, Integer> buckets = new HashMap<>();
+    private long[] totals;
+    private long[] counts;
+
+    public MoneyTotals() {
+        this(16);
+    }
+
+    public MoneyTotals(int expectedKeys) {
+        totals = new long[Math.max(expectedKeys, 1)];
+        counts = new long[Math.max(expectedKeys, 1)];
+    }
+
+    // Hot loops that see the same key repeatedly can resolve it once and use add(int, long)
+    public int bucketOf(K key) {
+        Integer bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.size();
+            buckets.put(key, bucket);
+            if (bucket == totals.length) {
+                totals = Arrays.copyOf(totals, bucket * 2);
+                counts = Arrays.copyOf(counts, bucket * 2);
+            }
+        }
+        return bucket;
+    }
+
+    public void add(K key, long cents) {
+        add(bucketOf(key), cents);
+    }
+
+    public void add(int bucket, long cents) {
+        totals[bucket] = Math.addExact(totals[bucket], cents);
+        counts[bucket]++;
+    }
+
+    // For a total that already covers several rows
+    public void add(K key, long cents, long count) {
+        int bucket = bucketOf(key);
+        totals[bucket] = Math.addExact(totals[bucket], cents);
+        counts[bucket] += count;
+    }
+
+    public long total(K key) {
+        Integer bucket = buckets.get(key);
+        return bucket == null ? 0 : totals[bucket];
+    }
+
+    public long count(K key) {
+        Integer bucket = buckets.get(key);
+        return bucket == null ? 0 : counts[bucket];
+    }
+
+    public Set<K> keys() {
+        return buckets.keySet();
+    }
+
+    public void forEach(TotalConsumer<K> consumer) {
+        buckets.forEach((key, bucket) -> consumer.accept(key, totals[bucket], counts[bucket]));
+    }
+
+    public static long sum(long[] cents, int length) {
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            total = Math.addExact(total, cents[i]);
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    public interface TotalConsumer<K> {
+        void accept(K key, long totalCents, long count);
+    }
+}
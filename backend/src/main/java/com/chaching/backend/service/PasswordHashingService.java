@@ -0,0 +1,111 @@
+package com.chaching.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// All bcrypt work runs here, on a small fixed pool with a bounded queue, so a burst of sign-ups or logins
+// queues a little and is then turned away with a 503 instead of tying up every request thread.
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private static final int CALIBRATION_STRENGTH = 8;
+
+    private final ExecutorService executor;
+    private final Counter rejections;
+    private final int strength;
+    private final BCryptPasswordEncoder encoder;
+    // Compared against when the email is unknown, so a miss costs as much as a wrong password
+    private final String dummyHash;
+
+    public PasswordHashingService(MeterRegistry meterRegistry,
+                                  @Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.bcrypt.strength:10}") int configuredStrength,
+                                  @Value("${auth.bcrypt.adaptive:false}") boolean adaptive,
+                                  @Value("${auth.bcrypt.target-time:250ms}") Duration targetTime,
+                                  @Value("${auth.bcrypt.min-strength:10}") int minStrength,
+                                  @Value("${auth.bcrypt.max-strength:14}") int maxStrength) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hashing");
+        this.rejections = meterRegistry.counter("chaching.password.hashing.rejected");
+
+        this.strength = adaptive ? calibrate(targetTime, minStrength, maxStrength) : configuredStrength;
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.dummyHash = encoder.encode("not-a-real-password");
+        log.info("Password hashing: bcrypt strength {}{}, {} threads, queue {}",
+                strength, adaptive ? " (calibrated)" : "", poolSize, queueCapacity);
+    }
+
+    public CompletableFuture<String> hash(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    // A null hash (unknown user, Google-only account) is checked against the dummy and never matches
+    public CompletableFuture<Boolean> matches(String rawPassword, String hash) {
+        if (hash == null) {
+            return submit(() -> {
+                encoder.matches(rawPassword, dummyHash);
+                return false;
+            });
+        }
+        return submit(() -> encoder.matches(rawPassword, hash));
+    }
+
+    // True when the hash was made with a different cost than the current one, in either direction
+    public boolean needsRehash(String hash) {
+        return hash == null || hash.length() < 7 || !hash.startsWith(String.format("$%02d$", strength), 3);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sign-ins in progress, try again shortly");
+        }
+    }
+
+    // Each extra point of strength doubles the work, so one timed hash at a low cost predicts the rest.
+    // Picks the highest strength that still fits the target on this machine.
+    private static int calibrate(Duration targetTime, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+        probe.encode("warm-up");
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        long nanos = Math.max(System.nanoTime() - start, 1);
+
+        int strength = CALIBRATION_STRENGTH;
+        while (strength < maxStrength && nanos * 2 <= targetTime.toNanos()) {
+            nanos *= 2;
+            strength++;
+        }
+        return Math.max(strength, minStrength);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
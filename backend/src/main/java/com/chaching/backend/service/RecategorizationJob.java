@@ -0,0 +1,86 @@
+package com.chaching.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs the current category rules over every user's uncategorized history. A few workers, on a pool of their own,
+// take users off a shared cursor over the users table, so one user with a long history does not hold up the rest;
+// a user that fails is logged and skipped.
+@Slf4j
+@Component
+public class RecategorizationJob {
+
+    private static final int USER_PAGE_SIZE = 1000;
+
+    private final TransactionService transactionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RecategorizationJob(TransactionService transactionService,
+                               JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${categorization.recategorize.parallelism:4}") int parallelism) {
+        this.transactionService = transactionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = BoundedExecutors.create(meterRegistry, "recategorize", parallelism, parallelism);
+        this.parallelism = parallelism;
+    }
+
+    // False when a run is already in progress
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            runAll().whenComplete((ignored, e) -> running.set(false));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public CompletableFuture<Void> runAll() {
+        UserIdCursor users = new UserIdCursor(jdbcTemplate, USER_PAGE_SIZE);
+        AtomicLong updated = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                Long userId;
+                while ((userId = users.next()) != null) {
+                    try {
+                        updated.addAndGet(transactionService.recategorizeUncategorized(userId));
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Recategorizing transactions for user {} failed", userId, e);
+                    }
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, e) -> log.info("Recategorized {} transactions for {} users in {} ms ({} failed)",
+                        updated.get(), users.handedOut(), (System.nanoTime() - start) / 1_000_000, failed.get()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
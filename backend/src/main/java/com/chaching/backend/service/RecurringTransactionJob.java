@@ -0,0 +1,201 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.RecurringRunCheckpoint;
+import com.chaching.backend.model.RecurringTransaction;
+import com.chaching.backend.repository.RecurringRunCheckpointRepository;
+import com.chaching.backend.repository.RecurringTransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Generates the transactions recurring templates have come due for. User ids are cut into fixed ranges of
+// partition-users ids; a few workers take ranges off a shared queue and work through each in chunks, one database
+// transaction per chunk, recording a checkpoint in the same transaction. A run that stops part way, or a second
+// run on the same day, skips finished ranges and resumes the rest from their checkpoint; since a committed
+// chunk has already moved its templates past today, nothing is generated twice either way. A chunk that fails is
+// retried a template at a time, and a template that fails on its own is quarantined, so one bad template cannot
+// stop its partition from finishing night after night. Each worker holds one
+// connection only while it writes a chunk, so the API keeps the rest of the pool.
+@Slf4j
+@Component
+public class RecurringTransactionJob {
+
+    private final RecurringTransactionService recurringTransactionService;
+    private final RecurringTransactionRepository recurringTransactionRepository;
+    private final RecurringRunCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor executor;
+    private final int workers;
+    private final long partitionUsers;
+    private final int chunkSize;
+    private final int checkpointRetentionDays;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RecurringTransactionJob(RecurringTransactionService recurringTransactionService,
+                                   RecurringTransactionRepository recurringTransactionRepository,
+                                   RecurringRunCheckpointRepository checkpointRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                                   @Value("${recurring.workers:2}") int workers,
+                                   @Value("${recurring.partition-users:10000}") long partitionUsers,
+                                   @Value("${recurring.chunk-size:500}") int chunkSize,
+                                   @Value("${recurring.checkpoint-retention-days:30}") int checkpointRetentionDays) {
+        this.recurringTransactionService = recurringTransactionService;
+        this.recurringTransactionRepository = recurringTransactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.workers = workers;
+        this.partitionUsers = partitionUsers;
+        this.chunkSize = chunkSize;
+        this.checkpointRetentionDays = checkpointRetentionDays;
+    }
+
+    @Scheduled(cron = "${recurring.cron:0 30 1 * * *}")
+    public void runNightly() {
+        if (!start(LocalDate.now())) {
+            log.warn("Skipping the scheduled recurring transaction run, the previous one is still going");
+        }
+    }
+
+    // False when a run is already in progress
+    public boolean start(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            runAll(today).whenComplete((ignored, e) -> running.set(false));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public CompletableFuture<Void> runAll(LocalDate today) {
+        Long maxUserId = recurringTransactionRepository.findMaxUserId();
+        if (maxUserId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                checkpointRepository.deleteByRunDateBefore(today.minusDays(checkpointRetentionDays)));
+        Map<Integer, RecurringRunCheckpoint> checkpoints = checkpointRepository.findByRunDate(today).stream()
+                .collect(Collectors.toMap(RecurringRunCheckpoint::getPartitionNo, checkpoint -> checkpoint));
+
+        ConcurrentLinkedQueue<Integer> partitions = new ConcurrentLinkedQueue<>();
+        int partitionCount = (int) (maxUserId / partitionUsers) + 1;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            RecurringRunCheckpoint checkpoint = checkpoints.get(partition);
+            if (checkpoint == null || !checkpoint.isCompleted()) {
+                partitions.add(partition);
+            }
+        }
+        int pending = partitions.size();
+        AtomicLong generated = new AtomicLong();
+        AtomicLong templates = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(workers, pending); i++) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                Integer partition;
+                while ((partition = partitions.poll()) != null) {
+                    RecurringRunCheckpoint checkpoint = checkpoints.get(partition);
+                    try {
+                        runPartition(today, partition, checkpoint == null ? null : checkpoint.getLastUserId(),
+                                templates, generated);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Recurring transactions for partition {} failed, the next run resumes it", partition, e);
+                    }
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, e) -> log.info(
+                        "Generated {} recurring transactions from {} templates over {} of {} partitions in {} ms ({} failed)",
+                        generated.get(), templates.get(), pending, partitionCount,
+                        (System.nanoTime() - start) / 1_000_000, failed.get()));
+    }
+
+    // Templates a chunk has processed are no longer due, so each chunk starts again at the last user it reached:
+    // that user's remaining due templates, if the chunk ended part way through them, are picked up next
+    private void runPartition(LocalDate today, int partition, Long resumeFrom, AtomicLong templates, AtomicLong generated) {
+        long fromUserId = partition * partitionUsers;
+        long toUserId = fromUserId + partitionUsers;
+        long cursor = resumeFrom == null ? fromUserId : Math.max(fromUserId, resumeFrom);
+        while (true) {
+            long after = cursor;
+            RecurringTransactionService.GeneratedChunk chunk;
+            try {
+                chunk = transactionTemplate.execute(status -> {
+                    RecurringTransactionService.GeneratedChunk next =
+                            recurringTransactionService.generateDue(after, toUserId, today, chunkSize);
+                    checkpointRepository.advance(today, partition, next == null ? null : next.lastUserId(),
+                            next == null ? 0 : next.transactions(), next == null);
+                    return next;
+                });
+            } catch (RuntimeException e) {
+                log.warn("A chunk of recurring transactions in partition {} failed, retrying it a template at a time", partition, e);
+                chunk = runOneAtATime(today, partition, after, toUserId);
+                if (chunk == null) {
+                    throw e;
+                }
+            }
+            if (chunk == null) {
+                return;
+            }
+            templates.addAndGet(chunk.templates());
+            generated.addAndGet(chunk.transactions());
+            cursor = chunk.lastUserId();
+        }
+    }
+
+    // Each template of a failed chunk in a transaction of its own. One that fails again is quarantined, so it
+    // cannot hold up the templates after it, tonight or on any later run. Null when none of them is due any more.
+    private RecurringTransactionService.GeneratedChunk runOneAtATime(LocalDate today, int partition, long after, long toUserId) {
+        List<RecurringTransaction> due = recurringTransactionRepository.findDue(after, toUserId, today, chunkSize);
+        if (due.isEmpty()) {
+            return null;
+        }
+        int templates = 0;
+        int transactions = 0;
+        for (RecurringTransaction template : due) {
+            try {
+                RecurringTransactionService.GeneratedChunk one = transactionTemplate.execute(status ->
+                        recurringTransactionService.generateDueTemplate(template.getId(), today));
+                if (one != null) {
+                    templates += one.templates();
+                    transactions += one.transactions();
+                }
+            } catch (RuntimeException e) {
+                log.error("Quarantined recurring transaction {} of user {}, generating it failed",
+                        template.getId(), template.getUserId(), e);
+                transactionTemplate.executeWithoutResult(status ->
+                        recurringTransactionRepository.quarantine(template.getId(), Instant.now()));
+            }
+        }
+        long lastUserId = due.get(due.size() - 1).getUserId();
+        long chunkTransactions = transactions;
+        transactionTemplate.executeWithoutResult(status ->
+                checkpointRepository.advance(today, partition, lastUserId, chunkTransactions, false));
+        return new RecurringTransactionService.GeneratedChunk(templates, transactions, lastUserId);
+    }
+}
@@ -0,0 +1,136 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.RecurringTransaction;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.UserChangeEvent;
+import com.chaching.backend.repository.RecurringTransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@Timed("chaching.service")
+@RequiredArgsConstructor
+public class RecurringTransactionService {
+
+    // Bounds how many missed occurrences one template can add in a single run
+    private static final int MAX_BACKDATE_YEARS = 1;
+
+    private final RecurringTransactionRepository recurringTransactionRepository;
+    private final EntityManager entityManager;
+    private final SpendRollupService spendRollupService;
+    private final CategorizationService categorizationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public record GeneratedChunk(int templates, int transactions, long lastUserId) {
+    }
+
+    @Transactional(readOnly = true)
+    public List<RecurringTransaction> getTemplates(Long userId) {
+        return recurringTransactionRepository.findByUserIdOrderById(userId);
+    }
+
+    // The first occurrence is on the start date; occurrences already due are generated on the next run
+    @Transactional
+    public RecurringTransaction addTemplate(Long userId, RecurringTransaction template) {
+        LocalDate start = template.getStartDate() == null ? LocalDate.now() : template.getStartDate();
+        if (template.getAmount() == null || template.getFrequency() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A recurring transaction needs an amount and a frequency");
+        }
+        if (start.isBefore(LocalDate.now().minusYears(MAX_BACKDATE_YEARS))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "startDate can be at most " + MAX_BACKDATE_YEARS + " year in the past");
+        }
+        if (template.getEndDate() != null && template.getEndDate().isBefore(start)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "endDate is before startDate");
+        }
+        return recurringTransactionRepository.save(new RecurringTransaction(null, userId, template.getAmount(),
+                template.getDescription(), template.getCategory(), template.getFrequency(), start,
+                template.getEndDate(), 0, start, null));
+    }
+
+    // Transactions it already generated stay
+    @Transactional
+    public void deleteTemplate(Long userId, Long templateId) {
+        RecurringTransaction template = recurringTransactionRepository.findById(templateId)
+                .filter(found -> userId.equals(found.getUserId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Recurring transaction not found"));
+        recurringTransactionRepository.delete(template);
+    }
+
+    // Generates every occurrence due by today for the next `limit` due templates from fromUserId on, and moves
+    // their nextRunDate past today. Joins the caller's transaction, so the new rows and the advanced templates
+    // commit together: a chunk that fails leaves its templates due, and one that commits is never repeated.
+    // Null when nothing in the range is due.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public GeneratedChunk generateDue(long fromUserId, long toUserId, LocalDate today, int limit) {
+        return generate(recurringTransactionRepository.lockDue(fromUserId, toUserId, today, limit), today);
+    }
+
+    // The same for one template, to retry a failed chunk a template at a time; null when it is no longer due
+    @Transactional(propagation = Propagation.MANDATORY)
+    public GeneratedChunk generateDueTemplate(long templateId, LocalDate today) {
+        return generate(recurringTransactionRepository.lockDueById(templateId, today), today);
+    }
+
+    private GeneratedChunk generate(List<RecurringTransaction> templates, LocalDate today) {
+        if (templates.isEmpty()) {
+            return null;
+        }
+
+        // By user, in user order, so the per-user rows this touches are always locked in the same order
+        Map<Long, List<Transaction>> byUser = new TreeMap<>();
+        for (RecurringTransaction template : templates) {
+            List<Transaction> generated = byUser.computeIfAbsent(template.getUserId(), id -> new ArrayList<>());
+            LocalDate due = template.getNextRunDate();
+            while (due != null && !due.isAfter(today)) {
+                // Templates have no currency of their own, so what they generate is in the base currency
+                generated.add(new Transaction(null, template.getUserId(), template.getAmount(),
+                        template.getDescription(), due, template.getCategory(), null));
+                template.setOccurrences(template.getOccurrences() + 1);
+                due = nextOccurrence(template);
+            }
+            template.setNextRunDate(due);
+        }
+
+        // Every statement below would otherwise dirty-check each managed template and transaction first
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Transaction> all = new ArrayList<>();
+        byUser.forEach((userId, generated) -> {
+            categorizationService.categorizeMissing(userId, generated);
+            all.addAll(generated);
+        });
+        all.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+
+        spendRollupService.record(all);
+        byUser.forEach((userId, generated) -> {
+            if (!generated.isEmpty()) {
+                eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.RECURRING_GENERATED,
+                        Map.of("generated", generated.size())));
+            }
+        });
+        return new GeneratedChunk(templates.size(), all.size(), templates.get(templates.size() - 1).getUserId());
+    }
+
+    // Null once past the end date
+    private static LocalDate nextOccurrence(RecurringTransaction template) {
+        LocalDate next = template.getFrequency().occurrence(template.getStartDate(), template.getOccurrences());
+        return template.getEndDate() != null && next.isAfter(template.getEndDate()) ? null : next;
+    }
+}
@@ -0,0 +1,50 @@
+package com.chaching.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Backfills monthly_spend from the transaction table and the archive, one user per database transaction, walking
+// the users table by id; a user that fails is logged and skipped. Writes that land for a user while that user is being rebuilt are still counted
+// exactly once.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SpendRollupRebuildJob {
+
+    private static final int USER_PAGE_SIZE = 1000;
+
+    private final SpendRollupService spendRollupService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${rollups.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            rebuildAll();
+        }
+    }
+
+    public void rebuildAll() {
+        UserIdCursor userIds = new UserIdCursor(jdbcTemplate, USER_PAGE_SIZE);
+        int users = 0;
+        int failed = 0;
+        Long userId;
+        while ((userId = userIds.next()) != null) {
+            try {
+                spendRollupService.rebuild(userId);
+                users++;
+            } catch (RuntimeException e) {
+                failed++;
+                log.warn("Rebuilding monthly spend rollups for user {} failed", userId, e);
+            }
+        }
+        log.info("Rebuilt monthly spend rollups for {} users ({} failed)", users, failed);
+    }
+}
@@ -0,0 +1,166 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.MonthlySpend;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.repository.MonthlySpendRepository;
+import com.chaching.backend.repository.TransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Per-month spending by category, kept up to date on every write. Only expenses count: a transaction with a
+// negative amount is money going out, a positive one is income, and a rollup holds what went out as a positive
+// total. A user's writes and a rebuild of that user's rollups never overlap: writers hold a shared advisory lock
+// on the user id for the rest of their transaction, and a rebuild holds it exclusively.
+@Service
+@Timed("chaching.service")
+public class SpendRollupService {
+
+    // Deltas are applied in key order so two writers touching the same rows always lock them in the same order
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::userId)
+            .thenComparing(RollupKey::monthStart)
+            .thenComparing(RollupKey::category)
+            .thenComparing(RollupKey::currency);
+
+    private final MonthlySpendRepository monthlySpendRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchiveService transactionArchiveService;
+    private final ExchangeRateService exchangeRateService;
+    private final TransactionTemplate snapshotTransaction;
+
+    public SpendRollupService(MonthlySpendRepository monthlySpendRepository,
+                              TransactionRepository transactionRepository,
+                              TransactionArchiveService transactionArchiveService,
+                              ExchangeRateService exchangeRateService,
+                              PlatformTransactionManager transactionManager) {
+        this.monthlySpendRepository = monthlySpendRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionArchiveService = transactionArchiveService;
+        this.exchangeRateService = exchangeRateService;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransaction.setReadOnly(true);
+    }
+
+    // Joins the caller's transaction so the rows and their totals commit together
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<Transaction> transactions) {
+        apply(transactions, 1);
+    }
+
+    // Takes deleted transactions back out of their months' totals
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void remove(Collection<Transaction> transactions) {
+        apply(transactions, -1);
+    }
+
+    private void apply(Collection<Transaction> transactions, int sign) {
+        String base = exchangeRateService.current().base();
+        MoneyTotals<RollupKey> deltas = new MoneyTotals<>();
+        for (Transaction transaction : transactions) {
+            // Legacy rows without a date were never rolled up (see sumExpensesByMonthAndCategory)
+            if (transaction.getDate() != null && isExpense(transaction)) {
+                deltas.add(keyOf(transaction, base), -Money.centsOf(transaction.getAmount()));
+            }
+        }
+
+        List<RollupKey> keys = new ArrayList<>(deltas.keys());
+        keys.sort(KEY_ORDER);
+        keys.stream().map(RollupKey::userId).distinct().forEach(monthlySpendRepository::lockForWrite);
+        for (RollupKey key : keys) {
+            long cents = sign * deltas.total(key);
+            long count = sign * deltas.count(key);
+            monthlySpendRepository.insertIfAbsent(key.userId(), key.monthStart(), key.category(), key.currency());
+            int updated = monthlySpendRepository.increment(key.userId(), key.monthStart(), key.category(), key.currency(), cents, count);
+            // Nothing else deletes rollup rows while the lock is held, so the row the insert made sure of is there
+            if (updated == 0) {
+                throw new IllegalStateException("Could not update the rollup for " + key);
+            }
+        }
+    }
+
+    // Recomputes a user's rollups from their transactions, archived ones included, for backfills and repairs.
+    // The exclusive lock waits for the user's writes in flight to commit and holds off new ones until the rebuild
+    // commits, so every write is counted exactly once: in the sums, or as a delta applied afterwards. The table
+    // and the archive are summed in one snapshot of their own, so an archive run committing in between cannot
+    // count a row twice or not at all.
+    @Transactional
+    public void rebuild(Long userId) {
+        monthlySpendRepository.lockForRebuild(userId);
+        monthlySpendRepository.deleteByUserId(userId);
+        for (MonthlySpend rollup : mergeUncategorized(snapshotTransaction.execute(status -> sum(userId)))) {
+            monthlySpendRepository.upsert(userId, rollup.getMonthStart(), rollup.getCategory(), rollup.getCurrency(),
+                    rollup.getTotalCents(), rollup.getTransactionCount());
+        }
+    }
+
+    private List<MonthlySpend> sum(Long userId) {
+        String base = exchangeRateService.current().base();
+        List<MonthlySpend> rollups = new ArrayList<>();
+        for (Object[] row : transactionRepository.sumExpensesByMonthAndCategory(userId)) {
+            LocalDate monthStart = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), 1);
+            String category = row[2] == null ? MonthlySpend.UNCATEGORIZED : (String) row[2];
+            String currency = row[3] == null ? base : (String) row[3];
+            long total = row[4] == null ? 0L : ((Number) row[4]).longValue();
+            rollups.add(new MonthlySpend(null, userId, monthStart, category, currency, -total, ((Number) row[5]).longValue()));
+        }
+        MoneyTotals<RollupKey> archived = new MoneyTotals<>();
+        transactionArchiveService.forEach(userId, null, null, transaction -> {
+            if (isExpense(transaction)) {
+                archived.add(keyOf(transaction, base), -Money.centsOf(transaction.getAmount()));
+            }
+        });
+        archived.forEach((key, cents, count) ->
+                rollups.add(new MonthlySpend(null, userId, key.monthStart(), key.category(), key.currency(), cents, count)));
+        return rollups;
+    }
+
+    @Transactional(readOnly = true)
+    public List<MonthlySpend> getMonth(Long userId, YearMonth month) {
+        return monthlySpendRepository.findByUserIdAndMonthStart(userId, month.atDay(1));
+    }
+
+    // Null and literal "Uncategorized" categories group separately in SQL but share one rollup row, and a month
+    // can have both archived and current rows
+    private List<MonthlySpend> mergeUncategorized(List<MonthlySpend> rollups) {
+        Map<RollupKey, MonthlySpend> merged = new TreeMap<>(KEY_ORDER);
+        for (MonthlySpend rollup : rollups) {
+            merged.merge(new RollupKey(rollup.getUserId(), rollup.getMonthStart(), rollup.getCategory(), rollup.getCurrency()), rollup,
+                    (existing, extra) -> {
+                        existing.setTotalCents(Math.addExact(existing.getTotalCents(), extra.getTotalCents()));
+                        existing.setTransactionCount(existing.getTransactionCount() + extra.getTransactionCount());
+                        return existing;
+                    });
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private static boolean isExpense(Transaction transaction) {
+        return Money.centsOf(transaction.getAmount()) < 0;
+    }
+
+    // Rows from before currencies existed are in the base currency
+    private static RollupKey keyOf(Transaction transaction, String base) {
+        String category = transaction.getCategory() == null ? MonthlySpend.UNCATEGORIZED : transaction.getCategory();
+        String currency = transaction.getCurrency() == null ? base : transaction.getCurrency();
+        return new RollupKey(transaction.getUserId(), transaction.getDate().withDayOfMonth(1), category, currency);
+    }
+
+    private record RollupKey(Long userId, LocalDate monthStart, String category, String currency) {
+    }
+}
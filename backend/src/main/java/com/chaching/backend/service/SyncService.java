@@ -0,0 +1,153 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.SyncPage;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.repository.BudgetRepository;
+import com.chaching.backend.repository.GoalRepository;
+import com.chaching.backend.repository.TransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Changes are ordered by (change_xid, change_seq), both stamped by triggers (see DatabaseInitializer). A sequence
+// value alone is not a safe cursor: a transaction can take a low number and commit after a higher one has already
+// been synced past. So a page only includes rows whose writing transaction is older than every transaction still
+// running, and anything committed later sorts after the cursor.
+// The catch is that one long write transaction anywhere in the database holds every client's sync back until it
+// ends, even for users it never touches. The jobs keep theirs short for this reason: recurring generation commits
+// every recurring.chunk-size templates and archiving commits per user and year. Read-only transactions, such as
+// the export cursors, take no transaction id and do not hold sync back.
+// A sync from the start begins with the user's archived transactions, which never change once archived. They
+// sort before every live change, at (0, id), so a client part way through them holds a "0-<id>" token. Rows that
+// an archive run moves while a client is still on its first sync can be missed, as with the all-users export;
+// archiving runs at night, and a client that syncs again from the start gets them.
+@Service
+@Timed("chaching.service")
+@RequiredArgsConstructor
+public class SyncService {
+
+    private static final String CHANGES = """
+            SELECT entity, id, change_xid, change_seq, deleted FROM (
+                SELECT 'transaction' AS entity, id, change_xid, change_seq, false AS deleted FROM transaction
+                    WHERE user_id = ? AND (change_xid, change_seq) > (?, ?)
+                UNION ALL
+                SELECT 'budget', id, change_xid, change_seq, false FROM budget
+                    WHERE user_id = ? AND (change_xid, change_seq) > (?, ?)
+                UNION ALL
+                SELECT 'goal', id, change_xid, change_seq, false FROM goal
+                    WHERE user_id = ? AND (change_xid, change_seq) > (?, ?)
+                UNION ALL
+                SELECT entity, entity_id, change_xid, change_seq, true FROM sync_tombstone
+                    WHERE user_id = ? AND (change_xid, change_seq) > (?, ?)
+            ) changes
+            WHERE change_xid < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+            ORDER BY change_xid, change_seq
+            LIMIT ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionArchiveService transactionArchiveService;
+    private final TransactionRepository transactionRepository;
+    private final BudgetRepository budgetRepository;
+    private final GoalRepository goalRepository;
+
+    @Value("${sync.page.default-size:500}")
+    private int defaultPageSize;
+
+    @Value("${sync.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Transactional(readOnly = true)
+    public SyncPage changesSince(Long userId, String since, Integer size) {
+        Position from = Position.parse(since);
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+
+        List<Transaction> archived = from.xid() == 0
+                ? transactionArchiveService.findAfterId(userId, from.seq(), null, null, null, pageSize + 1)
+                : List.of();
+        if (archived.size() > pageSize) {
+            List<Transaction> page = new ArrayList<>(archived.subList(0, pageSize));
+            return new SyncPage(page, List.of(), List.of(), List.of(),
+                    new Position(0, page.get(pageSize - 1).getId()).toString(), true);
+        }
+        if (!archived.isEmpty()) {
+            from = new Position(0, archived.get(archived.size() - 1).getId());
+            pageSize -= archived.size();
+        }
+
+        List<Change> changes = jdbcTemplate.query(CHANGES,
+                (rs, i) -> new Change(rs.getString(1), rs.getLong(2),
+                        new Position(rs.getLong(3), rs.getLong(4)), rs.getBoolean(5)),
+                userId, from.xid(), from.seq(),
+                userId, from.xid(), from.seq(),
+                userId, from.xid(), from.seq(),
+                userId, from.xid(), from.seq(),
+                pageSize + 1);
+
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+
+        List<Long> transactionIds = new ArrayList<>();
+        List<Long> budgetIds = new ArrayList<>();
+        List<Long> goalIds = new ArrayList<>();
+        List<SyncPage.Deleted> deleted = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.deleted()) {
+                deleted.add(new SyncPage.Deleted(change.entity(), change.id()));
+                continue;
+            }
+            switch (change.entity()) {
+                case "transaction" -> transactionIds.add(change.id());
+                case "budget" -> budgetIds.add(change.id());
+                case "goal" -> goalIds.add(change.id());
+                default -> throw new IllegalStateException("Unknown entity " + change.entity());
+            }
+        }
+
+        // A row deleted after the query above is simply missing here; its tombstone comes in a later page
+        List<Transaction> transactions = new ArrayList<>(archived);
+        if (!transactionIds.isEmpty()) {
+            transactions.addAll(transactionRepository.findAllById(transactionIds));
+        }
+        List<Budget> budgets = budgetIds.isEmpty() ? List.of() : budgetRepository.findAllById(budgetIds);
+        List<Goal> goals = goalIds.isEmpty() ? List.of() : goalRepository.findAllById(goalIds);
+
+        Position next = changes.isEmpty() ? from : changes.get(changes.size() - 1).position();
+        return new SyncPage(transactions, budgets, goals, deleted, next.toString(), hasMore);
+    }
+
+    private record Change(String entity, long id, Position position, boolean deleted) {
+    }
+
+    // Sent to clients as "<xid>-<seq>"; a missing token starts from the beginning
+    private record Position(long xid, long seq) {
+
+        static Position parse(String token) {
+            if (token == null || token.isBlank()) {
+                return new Position(0, 0);
+            }
+            int dash = token.indexOf('-');
+            try {
+                return new Position(Long.parseLong(token.substring(0, dash)), Long.parseLong(token.substring(dash + 1)));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "since must be a token returned by a previous sync");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return xid + "-" + seq;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.chaching.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Moves transactions older than horizon-days into the archive (see TransactionArchiveService). A few workers take
+// users off a shared queue; each year of a user's history moves in its own database transaction, so a run that
+// stops part way leaves every row either archived or still in the table, and the next run picks up the rest.
+// The nightly run is off unless archive.enabled is set, since every instance has to see the same archive.dir.
+@Slf4j
+@Component
+public class TransactionArchiveJob {
+
+    private final TransactionArchiveService transactionArchiveService;
+    private final JdbcTemplate jdbcTemplate;
+    private final AsyncTaskExecutor executor;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final int workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TransactionArchiveJob(TransactionArchiveService transactionArchiveService,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                                 @Value("${archive.enabled:false}") boolean enabled,
+                                 @Value("${archive.horizon-days:730}") int horizonDays,
+                                 @Value("${archive.workers:2}") int workers) {
+        this.transactionArchiveService = transactionArchiveService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.workers = workers;
+    }
+
+    @Scheduled(cron = "${archive.cron:0 0 3 * * *}")
+    public void runNightly() {
+        if (enabled && !start()) {
+            log.warn("Skipping the scheduled archive run, the previous one is still going");
+        }
+    }
+
+    // False when a run is already in progress
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            runAll(LocalDate.now().minusDays(horizonDays)).whenComplete((ignored, e) -> running.set(false));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    // Archives every transaction dated before the cutoff. Users come from their own table, each checked with one
+    // index probe for an old row, rather than from a scan of the whole transaction table. The LIMIT keeps Postgres
+    // from turning the probes back into that scan, as it may with EXISTS.
+    public CompletableFuture<Void> runAll(LocalDate cutoff) {
+        ConcurrentLinkedQueue<Long> users = new ConcurrentLinkedQueue<>(jdbcTemplate.queryForList(
+                "SELECT u.id FROM users u CROSS JOIN LATERAL (SELECT 1 FROM transaction t " +
+                        "WHERE t.user_id = u.id AND t.transaction_date < ? LIMIT 1) old ORDER BY u.id", Long.class, cutoff));
+        int userCount = users.size();
+        AtomicLong moved = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(workers, userCount); i++) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                Long userId;
+                while ((userId = users.poll()) != null) {
+                    try {
+                        moved.addAndGet(transactionArchiveService.archiveUser(userId, cutoff));
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Archiving transactions for user {} failed, the next run retries it", userId, e);
+                    }
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, e) -> log.info("Archived {} transactions dated before {} for {} users in {} ms ({} failed)",
+                        moved.get(), cutoff, userCount, (System.nanoTime() - start) / 1_000_000, failed.get()));
+    }
+}
@@ -0,0 +1,328 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.ArchivedSegment;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.repository.ArchivedSegmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+// Transactions older than the archive horizon, moved out of the transaction table into per-user, per-year segment
+// files (see TransactionSegment) under archive.dir. Every instance reads the same files, so the directory has to
+// be shared storage when more than one runs. Archived rows are read-only.
+//
+// Reads take the segment list from the database and must run in the same REPEATABLE READ transaction as the
+// matching read of the transaction table, so that an archive run committing in between cannot make rows show up
+// twice or not at all.
+@Slf4j
+@Service
+@Timed("chaching.service")
+public class TransactionArchiveService {
+
+    private final ArchivedSegmentRepository segmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final int blockRows;
+    private final Cache<Path, TransactionSegment> openSegments;
+
+    public TransactionArchiveService(ArchivedSegmentRepository segmentRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${archive.dir:./data/archive}") Path directory,
+                                     @Value("${archive.block-rows:1024}") int blockRows,
+                                     @Value("${archive.open-segments:1000}") long openSegments) {
+        this.segmentRepository = segmentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = directory;
+        this.blockRows = blockRows;
+        this.openSegments = Caffeine.newBuilder().maximumSize(openSegments).build();
+    }
+
+    // The first `limit` archived rows after afterId in id order, optionally only those dated from..to (inclusive,
+    // either end may be null) and in one category
+    @Transactional(readOnly = true)
+    public List<Transaction> findAfterId(Long userId, long afterId, LocalDate from, LocalDate to, String category, int limit) {
+        List<Transaction> found = new ArrayList<>();
+        for (ArchivedSegment archived : segmentRepository.findByUserIdOrderByYear(userId)) {
+            if (archived.getMaxId() <= afterId || !inYears(archived, from, to)) {
+                continue;
+            }
+            TransactionSegment segment = open(archived);
+            int taken = 0;
+            for (int block = 0; block < segment.blocks() && taken < limit; block++) {
+                if (segment.maxId(block) <= afterId || !segment.overlaps(block, from, to)) {
+                    continue;
+                }
+                for (Transaction transaction : read(segment, block)) {
+                    if (taken < limit && transaction.getId() > afterId && matches(transaction, from, to, category)) {
+                        found.add(transaction);
+                        taken++;
+                    }
+                }
+            }
+        }
+        found.sort(Comparator.comparing(Transaction::getId));
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    // The newest `limit` archived rows by id, newest first
+    @Transactional(readOnly = true)
+    public List<Transaction> findLatest(Long userId, int limit) {
+        List<Transaction> found = new ArrayList<>();
+        for (ArchivedSegment archived : segmentRepository.findByUserIdOrderByYear(userId)) {
+            TransactionSegment segment = open(archived);
+            int taken = 0;
+            for (int block = segment.blocks() - 1; block >= 0 && taken < limit; block--) {
+                List<Transaction> rows = read(segment, block);
+                for (int i = rows.size() - 1; i >= 0 && taken < limit; i--, taken++) {
+                    found.add(rows.get(i));
+                }
+            }
+        }
+        found.sort(Comparator.comparing(Transaction::getId).reversed());
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    // Every archived row dated from..to (either end may be null), a year at a time in id order
+    @Transactional(readOnly = true)
+    public void forEach(Long userId, LocalDate from, LocalDate to, Consumer<Transaction> consumer) {
+        for (ArchivedSegment archived : segmentRepository.findByUserIdOrderByYear(userId)) {
+            if (inYears(archived, from, to)) {
+                forEach(archived, from, to, consumer);
+            }
+        }
+    }
+
+    public void forEach(ArchivedSegment archived, LocalDate from, LocalDate to, Consumer<Transaction> consumer) {
+        TransactionSegment segment = open(archived);
+        for (int block = 0; block < segment.blocks(); block++) {
+            if (segment.overlaps(block, from, to)) {
+                for (Transaction transaction : read(segment, block)) {
+                    if (matches(transaction, from, to, null)) {
+                        consumer.accept(transaction);
+                    }
+                }
+            }
+        }
+    }
+
+    // The user's archived rows in id order, for merging into an id-ordered read of the table. Holds one decoded
+    // block per segment at a time, however long the history.
+    @Transactional(readOnly = true)
+    public ArchivedRows rows(Long userId) {
+        return new ArchivedRows(segmentRepository.findByUserIdOrderByYear(userId).stream().map(this::open).toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<ArchivedSegment> getSegments() {
+        return segmentRepository.findAllOrdered();
+    }
+
+    // Moves the user's transactions dated before the cutoff into their segments, one database transaction per
+    // year. Returns how many rows moved.
+    public int archiveUser(Long userId, LocalDate cutoff) {
+        List<Integer> years = jdbcTemplate.queryForList("SELECT DISTINCT CAST(EXTRACT(YEAR FROM transaction_date) AS int) " +
+                "FROM transaction WHERE user_id = ? AND transaction_date < ? ORDER BY 1", Integer.class, userId, cutoff);
+        int moved = 0;
+        for (int year : years) {
+            ArchivedYear archived = transactionTemplate.execute(status -> archiveYear(userId, year, cutoff));
+            if (archived != null) {
+                moved += archived.moved();
+                removeSupersededFiles(userId, year, archived.generation());
+            }
+        }
+        return moved;
+    }
+
+    private record ArchivedYear(int generation, int moved) {
+    }
+
+    // The rows stay locked from being read until they are deleted, so a row cannot be changed or deleted in the
+    // database after it has been copied. A transaction that rolls back leaves an unreferenced file behind, which
+    // the next attempt overwrites. Null when there was nothing to move.
+    private ArchivedYear archiveYear(Long userId, int year, LocalDate cutoff) {
+        LocalDate start = LocalDate.of(year, 1, 1);
+        LocalDate end = cutoff.isBefore(start.plusYears(1)) ? cutoff : start.plusYears(1);
+        // Tells record_tombstone these deletes are archiving, so /api/sync does not report the rows as deleted
+        jdbcTemplate.queryForObject("SELECT set_config('chaching.archiving', 'on', true)", String.class);
+        List<Transaction> moving = jdbcTemplate.query(TransactionExportService.COLUMNS +
+                        "WHERE user_id = ? AND transaction_date >= ? AND transaction_date < ? ORDER BY id FOR UPDATE",
+                (rs, i) -> TransactionExportService.toTransaction(rs), userId, start, end);
+        if (moving.isEmpty()) {
+            return null;
+        }
+
+        ArchivedSegment segment = segmentRepository.findByUserIdAndYear(userId, year)
+                .orElseGet(() -> new ArchivedSegment(null, userId, year, 0, 0, 0, 0, 0, null));
+        List<Transaction> rows = new ArrayList<>();
+        if (segment.getId() != null) {
+            forEach(segment, null, null, rows::add);
+        }
+        rows.addAll(moving);
+        rows.sort(Comparator.comparing(Transaction::getId));
+
+        segment.setGeneration(segment.getGeneration() + 1);
+        Path path = pathOf(userId, year, segment.getGeneration());
+        try {
+            Files.createDirectories(path.getParent());
+            segment.setSizeBytes(TransactionSegment.write(path, rows, blockRows));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Long[] ids = moving.stream().map(Transaction::getId).toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM transaction WHERE id = ANY(?)",
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("bigint", ids)));
+
+        segment.setRowCount(rows.size());
+        segment.setMinId(rows.get(0).getId());
+        segment.setMaxId(rows.get(rows.size() - 1).getId());
+        segment.setArchivedAt(Instant.now());
+        segmentRepository.save(segment);
+        return new ArchivedYear(segment.getGeneration(), moving.size());
+    }
+
+    // Keeps the generation just replaced for readers that looked up the segment before the switch committed
+    private void removeSupersededFiles(Long userId, int year, int current) {
+        Path userDirectory = pathOf(userId, year, current).getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(userDirectory, year + "-*.seg")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int generation = Integer.parseInt(name.substring(name.indexOf('-') + 1, name.length() - ".seg".length()));
+                if (generation < current - 1) {
+                    openSegments.invalidate(file);
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Could not remove old archive segments in {}: {}", userDirectory, e.getMessage());
+        }
+    }
+
+    // Spread over directories of a thousand users each
+    private Path pathOf(Long userId, int year, int generation) {
+        return directory.resolve(Long.toString(userId / 1000)).resolve(userId.toString()).resolve(year + "-" + generation + ".seg");
+    }
+
+    private TransactionSegment open(ArchivedSegment archived) {
+        return openSegments.get(pathOf(archived.getUserId(), archived.getYear(), archived.getGeneration()), path -> {
+            try {
+                return TransactionSegment.open(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static List<Transaction> read(TransactionSegment segment, int block) {
+        try {
+            return segment.read(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class ArchivedRows implements Iterator<Transaction> {
+
+        // A backdated row can give an earlier year's segment higher ids than a later one's, so segments interleave
+        private final PriorityQueue<SegmentCursor> cursors = new PriorityQueue<>(Comparator.comparingLong(SegmentCursor::id));
+
+        private ArchivedRows(List<TransactionSegment> segments) {
+            for (TransactionSegment segment : segments) {
+                SegmentCursor cursor = new SegmentCursor(segment);
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !cursors.isEmpty();
+        }
+
+        // Whether there is a next row and its id is below the given one
+        public boolean hasNextBefore(long id) {
+            return !cursors.isEmpty() && cursors.peek().id() < id;
+        }
+
+        @Override
+        public Transaction next() {
+            SegmentCursor cursor = cursors.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            Transaction transaction = cursor.current();
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            return transaction;
+        }
+    }
+
+    private static final class SegmentCursor {
+
+        private final TransactionSegment segment;
+        private int block = -1;
+        private List<Transaction> rows = List.of();
+        private int position = -1;
+
+        private SegmentCursor(TransactionSegment segment) {
+            this.segment = segment;
+        }
+
+        // False once past the last row
+        boolean advance() {
+            position++;
+            while (position >= rows.size()) {
+                if (++block >= segment.blocks()) {
+                    return false;
+                }
+                rows = read(segment, block);
+                position = 0;
+            }
+            return true;
+        }
+
+        Transaction current() {
+            return rows.get(position);
+        }
+
+        long id() {
+            return current().getId();
+        }
+    }
+
+    private static boolean inYears(ArchivedSegment archived, LocalDate from, LocalDate to) {
+        return (from == null || archived.getYear() >= from.getYear()) && (to == null || archived.getYear() <= to.getYear());
+    }
+
+    private static boolean matches(Transaction transaction, LocalDate from, LocalDate to, String category) {
+        return (from == null || !transaction.getDate().isBefore(from))
+                && (to == null || !transaction.getDate().isAfter(to))
+                && (category == null || Objects.equals(category, transaction.getCategory()));
+    }
+}
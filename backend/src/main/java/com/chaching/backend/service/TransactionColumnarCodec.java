@@ -0,0 +1,333 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// A compact, column-oriented encoding for transaction exports.
+//
+//   stream := "CCOL" version(1 byte) block* 0x00
+//   block  := rows(varint > 0) ids userIds dates amounts categories currencies descriptions
+//
+// Within a block each column is stored on its own: ids as deltas, user ids as runs, dates as day deltas,
+// amounts as zigzag varint cents, categories and currencies through a per-block dictionary and descriptions
+// as length-prefixed UTF-8. Version 1 streams, which archive segments written before currencies may still be,
+// have no currencies column and decode with a null currency. A nullable column starts with its null count and, when that is not zero, a bitmap
+// with one bit per row. A stream that ends without the final 0x00 was cut short.
+final class TransactionColumnarCodec {
+
+    static final byte[] MAGIC = {'C', 'C', 'O', 'L'};
+    static final int VERSION = 2;
+
+    private TransactionColumnarCodec() {
+    }
+
+    static void writeHeader(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    static void writeTrailer(OutputStream out) throws IOException {
+        out.write(0);
+    }
+
+    // Buffers up to blockRows rows and writes each block to the stream in a single call
+    static final class Encoder {
+
+        private final OutputStream out;
+        private final int blockRows;
+        private final List<Transaction> rows;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        private final DataOutputStream data = new DataOutputStream(buffer);
+
+        Encoder(OutputStream out, int blockRows) {
+            this.out = out;
+            this.blockRows = blockRows;
+            this.rows = new ArrayList<>(blockRows);
+        }
+
+        void write(Transaction transaction) throws IOException {
+            rows.add(transaction);
+            if (rows.size() == blockRows) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            buffer.reset();
+            writeVarLong(data, rows.size());
+            writeIds();
+            writeUserIds();
+            writeDates();
+            writeAmounts();
+            writeDictionary(Transaction::getCategory);
+            writeDictionary(Transaction::getCurrency);
+            writeDescriptions();
+            data.flush();
+            buffer.writeTo(out);
+            rows.clear();
+        }
+
+        private void writeIds() throws IOException {
+            long previous = 0;
+            for (Transaction row : rows) {
+                writeVarLong(data, zigzag(row.getId() - previous));
+                previous = row.getId();
+            }
+        }
+
+        private void writeUserIds() throws IOException {
+            writeNulls(rows.stream().map(Transaction::getUserId).toList());
+            List<long[]> runs = new ArrayList<>();
+            for (Transaction row : rows) {
+                if (row.getUserId() == null) {
+                    continue;
+                }
+                long[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+                if (last != null && last[0] == row.getUserId()) {
+                    last[1]++;
+                } else {
+                    runs.add(new long[]{row.getUserId(), 1});
+                }
+            }
+            writeVarLong(data, runs.size());
+            for (long[] run : runs) {
+                writeVarLong(data, zigzag(run[0]));
+                writeVarLong(data, run[1]);
+            }
+        }
+
+        private void writeDates() throws IOException {
+            writeNulls(rows.stream().map(Transaction::getDate).toList());
+            long previous = 0;
+            for (Transaction row : rows) {
+                if (row.getDate() != null) {
+                    long day = row.getDate().toEpochDay();
+                    writeVarLong(data, zigzag(day - previous));
+                    previous = day;
+                }
+            }
+        }
+
+        private void writeAmounts() throws IOException {
+            writeNulls(rows.stream().map(Transaction::getAmount).toList());
+            for (Transaction row : rows) {
+                if (row.getAmount() != null) {
+                    writeVarLong(data, zigzag(row.getAmount().cents()));
+                }
+            }
+        }
+
+        private void writeDictionary(Function<Transaction, String> column) throws IOException {
+            List<String> values = rows.stream().map(column).toList();
+            writeNulls(values);
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> entries = new ArrayList<>();
+            for (String value : values) {
+                if (value != null && dictionary.putIfAbsent(value, entries.size()) == null) {
+                    entries.add(value);
+                }
+            }
+            writeVarLong(data, entries.size());
+            for (String entry : entries) {
+                writeString(data, entry);
+            }
+            for (String value : values) {
+                if (value != null) {
+                    writeVarLong(data, dictionary.get(value));
+                }
+            }
+        }
+
+        private void writeDescriptions() throws IOException {
+            writeNulls(rows.stream().map(Transaction::getDescription).toList());
+            for (Transaction row : rows) {
+                if (row.getDescription() != null) {
+                    writeString(data, row.getDescription());
+                }
+            }
+        }
+
+        private void writeNulls(List<?> values) throws IOException {
+            byte[] bitmap = new byte[(values.size() + 7) / 8];
+            int nulls = 0;
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i) == null) {
+                    bitmap[i >> 3] |= (byte) (1 << (i & 7));
+                    nulls++;
+                }
+            }
+            writeVarLong(data, nulls);
+            if (nulls > 0) {
+                data.write(bitmap);
+            }
+        }
+    }
+
+    static final class Decoder {
+
+        private final DataInputStream in;
+        private final int version;
+
+        Decoder(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            byte[] magic = new byte[MAGIC.length];
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a columnar transaction export");
+            }
+            this.version = this.in.readUnsignedByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported columnar export version " + version);
+            }
+        }
+
+        // The next block's rows, or null once the end of the stream is reached
+        List<Transaction> nextBlock() throws IOException {
+            int rows = (int) readVarLong(in);
+            if (rows == 0) {
+                return null;
+            }
+            List<Transaction> block = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                block.add(new Transaction());
+            }
+
+            long id = 0;
+            for (Transaction row : block) {
+                id += unzigzag(readVarLong(in));
+                row.setId(id);
+            }
+
+            boolean[] nulls = readNulls(rows);
+            int runs = (int) readVarLong(in);
+            int index = 0;
+            for (int r = 0; r < runs; r++) {
+                long userId = unzigzag(readVarLong(in));
+                long length = readVarLong(in);
+                for (long n = 0; n < length; n++) {
+                    while (nulls[index]) {
+                        index++;
+                    }
+                    block.get(index++).setUserId(userId);
+                }
+            }
+
+            nulls = readNulls(rows);
+            long day = 0;
+            for (int i = 0; i < rows; i++) {
+                if (!nulls[i]) {
+                    day += unzigzag(readVarLong(in));
+                    block.get(i).setDate(LocalDate.ofEpochDay(day));
+                }
+            }
+
+            nulls = readNulls(rows);
+            for (int i = 0; i < rows; i++) {
+                if (!nulls[i]) {
+                    block.get(i).setAmount(Money.ofCents(unzigzag(readVarLong(in))));
+                }
+            }
+
+            readDictionary(block, Transaction::setCategory);
+            if (version >= 2) {
+                readDictionary(block, Transaction::setCurrency);
+            }
+
+            nulls = readNulls(rows);
+            for (int i = 0; i < rows; i++) {
+                if (!nulls[i]) {
+                    block.get(i).setDescription(readString(in));
+                }
+            }
+            return block;
+        }
+
+        private void readDictionary(List<Transaction> block, BiConsumer<Transaction, String> column) throws IOException {
+            boolean[] nulls = readNulls(block.size());
+            String[] dictionary = new String[(int) readVarLong(in)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(in);
+            }
+            for (int i = 0; i < block.size(); i++) {
+                if (!nulls[i]) {
+                    column.accept(block.get(i), dictionary[(int) readVarLong(in)]);
+                }
+            }
+        }
+
+        private boolean[] readNulls(int rows) throws IOException {
+            boolean[] nulls = new boolean[rows];
+            if (readVarLong(in) > 0) {
+                byte[] bitmap = new byte[(rows + 7) / 8];
+                in.readFully(bitmap);
+                for (int i = 0; i < rows; i++) {
+                    nulls[i] = (bitmap[i >> 3] & (1 << (i & 7))) != 0;
+                }
+            }
+            return nulls;
+        }
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Columnar export ended before its trailer");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,152 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads one transaction per record; the first record is a header naming the columns.
+// Quoted fields may contain commas, doubled quotes and line breaks, which come back as \n.
+class TransactionCsvReader {
+
+    // Bounds how much an unclosed quote can make the reader buffer
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private int lineNumber;
+
+    TransactionCsvReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+
+        String header = readRecord();
+        if (header == null) {
+            throw badRequest("CSV is empty");
+        }
+        List<String> names = parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("amount")) {
+            throw badRequest("CSV header must contain an amount column");
+        }
+    }
+
+    Transaction next() throws IOException {
+        String line;
+        do {
+            line = readRecord();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        List<String> fields = parseLine(line);
+        Transaction transaction = new Transaction();
+        try {
+            transaction.setAmount(Money.parse(field(fields, "amount")));
+        } catch (NumberFormatException | ArithmeticException | NullPointerException e) {
+            throw badRequest("Invalid amount");
+        }
+        transaction.setDescription(field(fields, "description"));
+        transaction.setCategory(field(fields, "category"));
+        // Older exports have no currency column; the importer fills in the base currency
+        transaction.setCurrency(field(fields, "currency"));
+
+        String date = field(fields, "date");
+        if (date != null) {
+            try {
+                transaction.setDate(LocalDate.parse(date));
+            } catch (DateTimeParseException e) {
+                throw badRequest("Invalid date, expected yyyy-MM-dd");
+            }
+        }
+        return transaction;
+    }
+
+    // A record runs on to the next line while a quoted field is open, that is while it has an odd number of quotes
+    private String readRecord() throws IOException {
+        String line = reader.readLine();
+        lineNumber++;
+        if (line == null || quotes(line) % 2 == 0) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        int quotes = quotes(line);
+        while (quotes % 2 != 0) {
+            String more = reader.readLine();
+            if (more == null) {
+                throw badRequest("Quoted field is not closed");
+            }
+            lineNumber++;
+            record.append('\n').append(more);
+            if (record.length() > MAX_RECORD_LENGTH) {
+                throw badRequest("Record is too long");
+            }
+            quotes += quotes(more);
+        }
+        return record.toString();
+    }
+
+    private static int quotes(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private ResponseStatusException badRequest(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Line " + lineNumber + ": " + message);
+    }
+
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
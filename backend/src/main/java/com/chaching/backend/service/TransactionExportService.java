@@ -0,0 +1,331 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.ArchivedSegment;
+import com.chaching.backend.model.ExportFormat;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Full-history exports. Rows come off a forward-only JDBC cursor a fetch at a time and go straight to the
+// output, so memory stays flat however long the history is. The cursor needs an open transaction, which
+// holds one connection for as long as the client takes to read the export. Archived rows are read from their
+// segment files (see TransactionArchiveService) ahead of the table's.
+@Slf4j
+@Service
+@Timed("chaching.service")
+public class TransactionExportService {
+
+    static final String COLUMNS = "SELECT id, user_id, amount_cents, description, transaction_date, category, currency FROM transaction ";
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionArchiveService transactionArchiveService;
+    private final ObjectWriter jsonWriter;
+    // The all-users export's readers, on their own pool so a slow download cannot hold threads other work needs
+    private final ExecutorService executor;
+    private final AtomicBoolean exportAllRunning = new AtomicBoolean();
+    private final int fetchSize;
+    private final int blockRows;
+    private final int partitions;
+
+    public TransactionExportService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    TransactionArchiveService transactionArchiveService,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${export.fetch-size:1000}") int fetchSize,
+                                    @Value("${export.columnar.block-rows:4096}") int blockRows,
+                                    @Value("${export.admin.partitions:4}") int partitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionArchiveService = transactionArchiveService;
+        this.jsonWriter = objectMapper.writerFor(Transaction.class);
+        // A range cursor and a segment reader per partition, for the one export allowed at a time
+        this.executor = BoundedExecutors.create(meterRegistry, "export", partitions * 2, partitions * 2);
+        this.fetchSize = fetchSize;
+        this.blockRows = blockRows;
+        this.partitions = partitions;
+    }
+
+    // Archived rows are merged into the cursor's in id order. Both are read in one snapshot, so an archive run
+    // cannot make rows appear twice or not at all.
+    public void exportUser(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        TransactionExportWriter.writeHeader(format, out);
+        TransactionExportWriter writer = TransactionExportWriter.create(format, out, jsonWriter, blockRows);
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                TransactionArchiveService.ArchivedRows archived = transactionArchiveService.rows(userId);
+                try {
+                    readCursor(COLUMNS + "WHERE user_id = ? ORDER BY id", new Object[]{userId}, transaction -> {
+                        while (archived.hasNextBefore(transaction.getId())) {
+                            writer.write(archived.next());
+                        }
+                        writer.write(transaction);
+                    });
+                    while (archived.hasNext()) {
+                        writer.write(archived.next());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        TransactionExportWriter.writeTrailer(format, out);
+    }
+
+    // Every user's transactions, read as id ranges on parallel cursors. Each range fills 64KB chunks of whole
+    // records and queues them; this thread writes the chunks out as they arrive. The queue is short, so a slow
+    // client holds the readers back rather than letting chunks pile up in memory. Rows from different ranges
+    // are interleaved chunk by chunk, not in id order. Archived segments are spread over as many more readers.
+    // The readers do not share a snapshot, so rows an archive run moves while the export is running can be
+    // missed or written twice; run it outside the archive window for an exact copy.
+    // Only one runs at a time, as each holds export.admin.partitions connections until the client has read it
+    // all. The target is opened only once this export is sure to run, so a rejected one can still answer 409.
+    public void exportAll(ExportFormat format, ExportTarget target) throws IOException {
+        if (!exportAllRunning.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An export of all transactions is already running");
+        }
+        BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(partitions * 2);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletableFuture<Void> done;
+        try {
+            done = startReaders(format, chunks, cancelled);
+        } catch (RuntimeException e) {
+            cancelled.set(true);
+            exportAllRunning.set(false);
+            throw e;
+        }
+        // Released when the last reader stops rather than when the response ends, so the next export finds the pool free
+        done.whenComplete((ignored, e) -> exportAllRunning.set(false));
+
+        try (OutputStream out = target.open()) {
+            TransactionExportWriter.writeHeader(format, out);
+            // A failed range cancels the others, which stop at their next chunk
+            while (!cancelled.get()) {
+                byte[] chunk = chunks.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk != null) {
+                    out.write(chunk);
+                } else if (done.isDone() && chunks.isEmpty()) {
+                    break;
+                }
+            }
+
+            try {
+                done.join();
+            } catch (CompletionException e) {
+                log.error("Admin export failed, the response is incomplete", e.getCause());
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+            TransactionExportWriter.writeTrailer(format, out);
+        } catch (IOException | RuntimeException e) {
+            cancelled.set(true);
+            throw e;
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        }
+    }
+
+    private CompletableFuture<Void> startReaders(ExportFormat format, BlockingQueue<byte[]> chunks, AtomicBoolean cancelled) {
+        List<CompletableFuture<Void>> readers = new ArrayList<>();
+        List<ArchivedSegment> segments = transactionArchiveService.getSegments();
+        for (int partition = 0; partition < Math.min(partitions, segments.size()); partition++) {
+            List<ArchivedSegment> share = new ArrayList<>();
+            for (int i = partition; i < segments.size(); i += partitions) {
+                share.add(segments.get(i));
+            }
+            readers.add(CompletableFuture.runAsync(() -> exportSegments(share, format, chunks, cancelled), executor));
+        }
+        for (long[] range : idRanges()) {
+            readers.add(CompletableFuture.runAsync(() -> exportRange(range[0], range[1], format, chunks, cancelled), executor));
+        }
+        return CompletableFuture.allOf(readers.toArray(CompletableFuture[]::new));
+    }
+
+    private void exportRange(long fromId, long toId, ExportFormat format, BlockingQueue<byte[]> chunks, AtomicBoolean cancelled) {
+        ChunkQueue queue = new ChunkQueue(chunks, cancelled);
+        TransactionExportWriter writer = TransactionExportWriter.create(format, queue, jsonWriter, blockRows);
+        try {
+            readCursor(COLUMNS + "WHERE id >= ? AND id < ? ORDER BY id", new Object[]{fromId, toId}, transaction -> {
+                writer.write(transaction);
+                queue.endOfRecord();
+            });
+            writer.flush();
+            queue.handOff();
+        } catch (IOException e) {
+            cancelled.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            cancelled.set(true);
+            throw e;
+        }
+    }
+
+    private void exportSegments(List<ArchivedSegment> segments, ExportFormat format, BlockingQueue<byte[]> chunks,
+                                AtomicBoolean cancelled) {
+        ChunkQueue queue = new ChunkQueue(chunks, cancelled);
+        TransactionExportWriter writer = TransactionExportWriter.create(format, queue, jsonWriter, blockRows);
+        try {
+            for (ArchivedSegment segment : segments) {
+                transactionArchiveService.forEach(segment, null, null, transaction -> {
+                    try {
+                        writer.write(transaction);
+                        queue.endOfRecord();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            writer.flush();
+            queue.handOff();
+        } catch (IOException e) {
+            cancelled.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            cancelled.set(true);
+            throw e;
+        }
+    }
+
+    // Splits [min id, max id] into equal ranges, one per partition; ends are exclusive
+    private List<long[]> idRanges() {
+        Long[] bounds = jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM transaction",
+                (rs, i) -> new Long[]{(Long) rs.getObject(1), (Long) rs.getObject(2)});
+        List<long[]> ranges = new ArrayList<>();
+        if (bounds == null || bounds[0] == null) {
+            return ranges;
+        }
+        long min = bounds[0];
+        long end = bounds[1] + 1;
+        long step = Math.max(1, (end - min + partitions - 1) / partitions);
+        for (long from = min; from < end; from += step) {
+            ranges.add(new long[]{from, Math.min(from + step, end)});
+        }
+        return ranges;
+    }
+
+    private void readCursor(String sql, Object[] args, RowWriter rowWriter) throws IOException {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                // Postgres only streams with a fetch size inside a transaction; otherwise it reads the whole result
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                return statement;
+            }, rs -> {
+                try {
+                    rowWriter.write(toTransaction(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static Transaction toTransaction(ResultSet rs) throws SQLException {
+        long cents = rs.getLong("amount_cents");
+        Money amount = rs.wasNull() ? null : Money.ofCents(cents);
+        Date date = rs.getDate("transaction_date");
+        return new Transaction(rs.getLong("id"), (Long) rs.getObject("user_id"), amount,
+                rs.getString("description"), date == null ? null : date.toLocalDate(), rs.getString("category"),
+                rs.getString("currency"));
+    }
+
+    private interface RowWriter {
+        void write(Transaction transaction) throws IOException;
+    }
+
+    public interface ExportTarget {
+        OutputStream open() throws IOException;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Collects one range's output and queues it in chunks that always end on a record boundary
+    private static class ChunkQueue extends ByteArrayOutputStream {
+
+        private final BlockingQueue<byte[]> chunks;
+        private final AtomicBoolean cancelled;
+
+        ChunkQueue(BlockingQueue<byte[]> chunks, AtomicBoolean cancelled) {
+            super(CHUNK_BYTES + 4096);
+            this.chunks = chunks;
+            this.cancelled = cancelled;
+        }
+
+        void endOfRecord() throws IOException {
+            if (size() >= CHUNK_BYTES) {
+                handOff();
+            }
+        }
+
+        void handOff() throws IOException {
+            if (cancelled.get()) {
+                throw new IOException("Export cancelled");
+            }
+            if (size() == 0) {
+                return;
+            }
+            byte[] chunk = toByteArray();
+            reset();
+            try {
+                while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancelled.get()) {
+                        throw new IOException("Export cancelled");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Export interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.ExportFormat;
+import com.chaching.backend.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Writes exported rows in one format. Once write() returns, every byte of that row has been handed to the
+// stream, except in the columnar format, which hands over whole blocks; either way the stream only ever sees
+// complete records, so the parallel export can cut it into chunks between any two calls.
+interface TransactionExportWriter {
+
+    String CSV_HEADER = "id,user_id,date,description,category,amount,currency\n";
+
+    void write(Transaction transaction) throws IOException;
+
+    // Hands over anything still buffered
+    void flush() throws IOException;
+
+    static void writeHeader(ExportFormat format, OutputStream out) throws IOException {
+        switch (format) {
+            case CSV -> out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            case NDJSON -> { }
+            case COLUMNAR -> TransactionColumnarCodec.writeHeader(out);
+        }
+    }
+
+    static void writeTrailer(ExportFormat format, OutputStream out) throws IOException {
+        if (format == ExportFormat.COLUMNAR) {
+            TransactionColumnarCodec.writeTrailer(out);
+        }
+    }
+
+    static TransactionExportWriter create(ExportFormat format, OutputStream out, ObjectWriter jsonWriter, int blockRows) {
+        return switch (format) {
+            case CSV -> new Csv(out);
+            case NDJSON -> new Ndjson(out, jsonWriter);
+            case COLUMNAR -> new Columnar(new TransactionColumnarCodec.Encoder(out, blockRows));
+        };
+    }
+
+    // Same columns TransactionCsvReader reads, so an export can be imported again
+    record Csv(OutputStream out) implements TransactionExportWriter {
+
+        @Override
+        public void write(Transaction transaction) throws IOException {
+            StringBuilder line = new StringBuilder(96)
+                    .append(transaction.getId()).append(',')
+                    .append(transaction.getUserId()).append(',')
+                    .append(transaction.getDate() == null ? "" : transaction.getDate()).append(',');
+            appendField(line, transaction.getDescription());
+            line.append(',');
+            appendField(line, transaction.getCategory());
+            line.append(',')
+                    .append(transaction.getAmount() == null ? "" : transaction.getAmount())
+                    .append(',')
+                    .append(transaction.getCurrency() == null ? "" : transaction.getCurrency())
+                    .append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        private static void appendField(StringBuilder line, String value) {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                line.append(value);
+                return;
+            }
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    // One JSON object per line, with the same fields as the JSON API
+    record Ndjson(OutputStream out, ObjectWriter jsonWriter) implements TransactionExportWriter {
+
+        @Override
+        public void write(Transaction transaction) throws IOException {
+            out.write(jsonWriter.writeValueAsBytes(transaction));
+            out.write('\n');
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+
+    record Columnar(TransactionColumnarCodec.Encoder encoder) implements TransactionExportWriter {
+
+        @Override
+        public void write(Transaction transaction) throws IOException {
+            encoder.write(transaction);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            encoder.flush();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// One user's archived transactions for one year, in a file that is written once and then only read.
+//
+//   file  := "CSEG" version(1 byte) blocks(int) entry{blocks} block{blocks}
+//   entry := offset(long) compressed(int) length(int) rows(int) minId(long) maxId(long) minDay(int) maxDay(int)
+//   block := a deflated columnar stream (see TransactionColumnarCodec) of up to blockRows rows
+//
+// Rows are in id order, so blocks cover ascending id ranges. The index up front gives each block's id and date
+// range, so a read only inflates the blocks it needs. Files are memory mapped: the OS page cache holds whatever
+// is read often and the heap holds only the index.
+final class TransactionSegment {
+
+    static final byte[] MAGIC = {'C', 'S', 'E', 'G'};
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 1 + Integer.BYTES;
+    private static final int ENTRY_BYTES = 44;
+
+    private final MappedByteBuffer buffer;
+    private final long[] offsets;
+    private final int[] compressed;
+    private final int[] lengths;
+    private final int[] rows;
+    private final long[] minIds;
+    private final long[] maxIds;
+    private final int[] minDays;
+    private final int[] maxDays;
+
+    private TransactionSegment(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.get(MAGIC.length) != VERSION) {
+            throw new IOException("Not a transaction segment");
+        }
+        int blocks = buffer.getInt(MAGIC.length + 1);
+        offsets = new long[blocks];
+        compressed = new int[blocks];
+        lengths = new int[blocks];
+        rows = new int[blocks];
+        minIds = new long[blocks];
+        maxIds = new long[blocks];
+        minDays = new int[blocks];
+        maxDays = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int at = HEADER_BYTES + b * ENTRY_BYTES;
+            offsets[b] = buffer.getLong(at);
+            compressed[b] = buffer.getInt(at + 8);
+            lengths[b] = buffer.getInt(at + 12);
+            rows[b] = buffer.getInt(at + 16);
+            minIds[b] = buffer.getLong(at + 20);
+            maxIds[b] = buffer.getLong(at + 28);
+            minDays[b] = buffer.getInt(at + 36);
+            maxDays[b] = buffer.getInt(at + 40);
+        }
+    }
+
+    // The mapping outlives the channel, so nothing is left open
+    static TransactionSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TransactionSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Rows must be in id order and all have a date. Written next to the target and moved into place once
+    // synced, so the path only ever holds a complete file.
+    static long write(Path path, List<Transaction> transactions, int blockRows) throws IOException {
+        int blocks = (transactions.size() + blockRows - 1) / blockRows;
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + blocks * ENTRY_BYTES);
+        index.put(MAGIC).put((byte) VERSION).putInt(blocks);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream block = new ByteArrayOutputStream(64 * 1024);
+        Deflater deflater = new Deflater();
+        try {
+            for (int from = 0; from < transactions.size(); from += blockRows) {
+                List<Transaction> slice = transactions.subList(from, Math.min(from + blockRows, transactions.size()));
+                block.reset();
+                TransactionColumnarCodec.writeHeader(block);
+                TransactionColumnarCodec.Encoder encoder = new TransactionColumnarCodec.Encoder(block, slice.size());
+                int minDay = Integer.MAX_VALUE;
+                int maxDay = Integer.MIN_VALUE;
+                for (Transaction transaction : slice) {
+                    encoder.write(transaction);
+                    int day = (int) transaction.getDate().toEpochDay();
+                    minDay = Math.min(minDay, day);
+                    maxDay = Math.max(maxDay, day);
+                }
+                encoder.flush();
+                TransactionColumnarCodec.writeTrailer(block);
+
+                byte[] raw = block.toByteArray();
+                deflater.reset();
+                deflater.setInput(raw);
+                deflater.finish();
+                int start = data.size();
+                byte[] out = new byte[8192];
+                while (!deflater.finished()) {
+                    data.write(out, 0, deflater.deflate(out));
+                }
+                index.putLong(index.capacity() + start).putInt(data.size() - start).putInt(raw.length).putInt(slice.size())
+                        .putLong(slice.get(0).getId()).putLong(slice.get(slice.size() - 1).getId())
+                        .putInt(minDay).putInt(maxDay);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            index.flip();
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            ByteBuffer body = ByteBuffer.wrap(data.toByteArray());
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename itself has to reach the disk before the database is told the file exists
+        try (FileChannel directory = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        return Files.size(path);
+    }
+
+    int blocks() {
+        return offsets.length;
+    }
+
+    long maxId(int block) {
+        return maxIds[block];
+    }
+
+    // Whether any row of the block can fall between from and to; either end may be null
+    boolean overlaps(int block, LocalDate from, LocalDate to) {
+        return (from == null || maxDays[block] >= from.toEpochDay()) && (to == null || minDays[block] <= to.toEpochDay());
+    }
+
+    // Decoded afresh on every call, so callers own the rows they get
+    List<Transaction> read(int block) throws IOException {
+        byte[] raw = new byte[lengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) offsets[block], compressed[block]));
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated segment block");
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt segment block", e);
+        } finally {
+            inflater.end();
+        }
+        TransactionColumnarCodec.Decoder decoder = new TransactionColumnarCodec.Decoder(new ByteArrayInputStream(raw));
+        List<Transaction> decoded = decoder.nextBlock();
+        return decoded == null ? List.of() : decoded;
+    }
+}
@@ -1,24 +1,351 @@
 package com.chaching.backend.service;
 
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.Money;
 import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.TransactionPage;
+import com.chaching.backend.model.TransactionSearchPage;
+import com.chaching.backend.model.TransactionSummary;
+import com.chaching.backend.model.UserChangeEvent;
 import com.chaching.backend.repository.TransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed("chaching.service")
 @RequiredArgsConstructor
 public class TransactionService {
 
+    private static final int MAX_SEARCH_LENGTH = 100;
+
     private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final SpendRollupService spendRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategorizationService categorizationService;
+    private final TransactionArchiveService transactionArchiveService;
+    private final ExchangeRateService exchangeRateService;
+
+    @Value("${transactions.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${transactions.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${transactions.import.chunk-size:500}")
+    private int importChunkSize;
+
+    @Value("${transactions.search.page-size:20}")
+    private int searchPageSize;
+
+    @Value("${transactions.search.max-page-size:100}")
+    private int maxSearchPageSize;
 
+    @Value("${transactions.search.fuzzy-threshold:0.5}")
+    private double fuzzyThreshold;
+
+    // Reads that cover archived history join the archive's rows to the table's in one REPEATABLE READ snapshot,
+    // which is what keeps a row from showing up in both or neither while an archive run commits (see
+    // TransactionArchiveService)
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public List<Transaction> getTransactionsByUser(Long userId) {
-        return transactionRepository.findByUserId(userId);
+        List<Transaction> transactions = new ArrayList<>();
+        transactionArchiveService.forEach(userId, null, null, transactions::add);
+        transactions.addAll(transactionRepository.findByUserId(userId));
+        return transactions;
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public TransactionPage getTransactionPage(Long userId, Long after, Integer size) {
+        int pageSize = pageSize(size);
+        long afterId = after == null ? 0L : after;
+        return page(mergeById(transactionRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, Limit.of(pageSize)),
+                transactionArchiveService.findAfterId(userId, afterId, null, null, null, pageSize), pageSize), pageSize);
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<Transaction> getRecentTransactions(Long userId, int limit) {
+        // Ids follow insertion, not transaction dates, so a backdated import can leave the newest ids in the archive
+        List<Transaction> archived = transactionArchiveService.findLatest(userId, limit);
+        List<Transaction> recent = transactionRepository.findByUserIdOrderByIdDesc(userId, Limit.of(limit));
+        if (archived.isEmpty()) {
+            return recent;
+        }
+        List<Transaction> merged = new ArrayList<>(recent);
+        merged.addAll(archived);
+        merged.sort(Comparator.comparing(Transaction::getId).reversed());
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    // Matches descriptions containing the query, or with a word close to it, so typos and partial words still find something
+    @Transactional(readOnly = true)
+    public TransactionSearchPage search(Long userId, String query, Integer page, Integer size) {
+        String text = query == null ? "" : query.trim();
+        if (text.isEmpty() || text.length() > MAX_SEARCH_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must be 1 to " + MAX_SEARCH_LENGTH + " characters");
+        }
+        int pageSize = size == null || size <= 0 ? searchPageSize : Math.min(size, maxSearchPageSize);
+        int pageNumber = page == null || page < 0 ? 0 : page;
+
+        transactionRepository.setWordSimilarityThreshold(Double.toString(fuzzyThreshold));
+        List<Transaction> items = transactionRepository.search(userId, text, "%" + escapeLike(text) + "%",
+                pageSize + 1, (long) pageNumber * pageSize);
+        boolean hasMore = items.size() > pageSize;
+        return new TransactionSearchPage(hasMore ? items.subList(0, pageSize) : items, hasMore ? pageNumber + 1 : null);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Dates are inclusive on both ends; the cursor works the same way as for the unfiltered pages
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public TransactionPage getTransactionsInRange(Long userId, LocalDate from, LocalDate to, String category,
+                                                  Long after, Integer size) {
+        int pageSize = pageSize(size);
+        long afterId = after == null ? 0L : after;
+        List<Transaction> items = category == null
+                ? transactionRepository.findByUserIdAndDateBetweenAndIdGreaterThanOrderByIdAsc(
+                        userId, from, to, afterId, Limit.of(pageSize))
+                : transactionRepository.findByUserIdAndCategoryAndDateBetweenAndIdGreaterThanOrderByIdAsc(
+                        userId, category, from, to, afterId, Limit.of(pageSize));
+        return page(mergeById(items, transactionArchiveService.findAfterId(userId, afterId, from, to, category, pageSize), pageSize),
+                pageSize);
+    }
+
+    // Totals in the given currency (see ExchangeRateService.require). Rows are summed per bucket and currency
+    // first, archived ones included, and each of those sums is converted once at the given rates.
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<TransactionSummary> summarize(Long userId, LocalDate from, LocalDate to, TransactionSummary.GroupBy groupBy,
+                                              ExchangeRates rates, String currency) {
+        MoneyTotals<CurrencyBucket> sums = new MoneyTotals<>();
+        switch (groupBy) {
+            case DAY -> transactionRepository.sumByDay(userId, from, to)
+                    .forEach(row -> add(sums, row[0].toString(), row[1], row[2], row[3]));
+            case MONTH -> transactionRepository.sumByMonth(userId, from, to)
+                    .forEach(row -> add(sums, YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue()).toString(),
+                            row[2], row[3], row[4]));
+            case CATEGORY -> transactionRepository.sumByCategory(userId, from, to)
+                    .forEach(row -> add(sums, (String) row[0], row[1], row[2], row[3]));
+        }
+        transactionArchiveService.forEach(userId, from, to, transaction -> sums.add(new CurrencyBucket(switch (groupBy) {
+            case DAY -> transaction.getDate().toString();
+            case MONTH -> YearMonth.from(transaction.getDate()).toString();
+            case CATEGORY -> transaction.getCategory();
+        }, transaction.getCurrency()), Money.centsOf(transaction.getAmount())));
+
+        ExchangeRates converting = exchangeRateService.covering(rates,
+                sums.keys().stream().map(CurrencyBucket::currency).collect(Collectors.toSet()));
+        // Day and month keys sort by date as strings; null categories go last, as in SQL
+        Map<String, long[]> totals = new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder()));
+        sums.forEach((bucket, cents, count) -> totals.merge(bucket.key(),
+                new long[]{converting.convert(cents, bucket.currency(), currency), count},
+                (a, b) -> new long[]{Math.addExact(a[0], b[0]), a[1] + b[1]}));
+        return totals.entrySet().stream()
+                .map(entry -> new TransactionSummary(entry.getKey(), Money.ofCents(entry.getValue()[0]), entry.getValue()[1], currency))
+                .toList();
+    }
+
+    private record CurrencyBucket(String key, String currency) {
     }
 
+    private static void add(MoneyTotals<CurrencyBucket> sums, String key, Object currency, Object total, Object count) {
+        sums.add(new CurrencyBucket(key, (String) currency), total == null ? 0 : ((Number) total).longValue(), ((Number) count).longValue());
+    }
+
+    private int pageSize(Integer size) {
+        return size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+    }
+
+    // The first `limit` of two id-ordered lists, in id order
+    private static List<Transaction> mergeById(List<Transaction> table, List<Transaction> archived, int limit) {
+        if (archived.isEmpty()) {
+            return table;
+        }
+        List<Transaction> merged = new ArrayList<>(table);
+        merged.addAll(archived);
+        merged.sort(Comparator.comparing(Transaction::getId));
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private static TransactionPage page(List<Transaction> items, int pageSize) {
+        Long nextCursor = items.size() < pageSize ? null : items.get(items.size() - 1).getId();
+        return new TransactionPage(items, nextCursor);
+    }
+
+    // In id order, archived rows included. Rows are detached as soon as they are handed off so the persistence
+    // context stays empty.
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void streamTransactionsByUser(Long userId, Consumer<Transaction> consumer) {
+        TransactionArchiveService.ArchivedRows archived = transactionArchiveService.rows(userId);
+        try (Stream<Transaction> transactions = transactionRepository.streamByUserId(userId)) {
+            transactions.forEach(transaction -> {
+                while (archived.hasNextBefore(transaction.getId())) {
+                    consumer.accept(archived.next());
+                }
+                consumer.accept(transaction);
+                entityManager.detach(transaction);
+            });
+        }
+        archived.forEachRemaining(consumer);
+    }
+
+    @Transactional
     public Transaction createTransaction(Long userId, Transaction transaction) {
         transaction.setUserId(userId);
-        return transactionRepository.save(transaction);
+        transaction.setCurrency(exchangeRateService.normalize(transaction.getCurrency()));
+        categorizationService.categorizeMissing(userId, List.of(transaction));
+        Transaction saved = transactionRepository.save(transaction);
+        spendRollupService.record(List.of(saved));
+        eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.TRANSACTION_CREATED, saved));
+        return saved;
+    }
+
+    // Someone else's transaction is reported as not found, the same as one that does not exist
+    @Transactional
+    public void deleteTransaction(Long userId, Long transactionId) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .filter(found -> userId.equals(found.getUserId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction not found"));
+        transactionRepository.delete(transaction);
+        spendRollupService.remove(List.of(transaction));
+        eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.TRANSACTION_DELETED,
+                Map.of("id", transactionId)));
+    }
+
+    // Chunks before a failing one stay committed, so they are announced even when the import fails
+    public int importTransactions(Long userId, List<Transaction> transactions) {
+        int imported = 0;
+        try {
+            for (int from = 0; from < transactions.size(); from += importChunkSize) {
+                imported += saveChunk(userId, transactions.subList(from, Math.min(from + importChunkSize, transactions.size())));
+            }
+        } finally {
+            publishImported(userId, imported);
+        }
+        return imported;
+    }
+
+    // Parses while inserting, so only one chunk is ever held in memory; chunks before a bad line stay committed
+    // and are announced even when the import fails
+    public int importCsv(Long userId, InputStream csv) throws IOException {
+        TransactionCsvReader reader = new TransactionCsvReader(
+                new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+
+        int imported = 0;
+        try {
+            List<Transaction> chunk = new ArrayList<>(importChunkSize);
+            Transaction transaction;
+            while ((transaction = reader.next()) != null) {
+                chunk.add(transaction);
+                if (chunk.size() == importChunkSize) {
+                    imported += saveChunk(userId, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                imported += saveChunk(userId, chunk);
+            }
+        } finally {
+            publishImported(userId, imported);
+        }
+        return imported;
+    }
+
+    // Gives uncategorized transactions, those with a null or blank category, the category the current rules pick,
+    // a chunk per database transaction, moving their amounts out of the rollups they were counted under as it goes.
+    // Categories already set are left alone.
+    public int recategorizeUncategorized(Long userId) {
+        UnaryOperator<String> categorizer = categorizationService.categorizerFor(userId);
+        long after = 0;
+        int updated = 0;
+        while (true) {
+            long cursor = after;
+            List<Transaction> page = transactionTemplate.execute(status -> {
+                List<Transaction> chunk = transactionRepository.findUncategorizedAfterId(userId, cursor, Limit.of(importChunkSize));
+                List<Transaction> before = new ArrayList<>();
+                List<Transaction> changed = new ArrayList<>();
+                for (Transaction transaction : chunk) {
+                    String category = categorizer.apply(transaction.getDescription());
+                    if (category != null) {
+                        before.add(new Transaction(transaction.getId(), userId, transaction.getAmount(),
+                                transaction.getDescription(), transaction.getDate(), transaction.getCategory(), transaction.getCurrency()));
+                        transaction.setCategory(category);
+                        changed.add(transaction);
+                    }
+                }
+                spendRollupService.remove(before);
+                spendRollupService.record(changed);
+                return chunk;
+            });
+            updated += (int) page.stream()
+                    .filter(transaction -> transaction.getCategory() != null && !transaction.getCategory().isBlank())
+                    .count();
+            if (page.size() < importChunkSize) {
+                break;
+            }
+            after = page.get(page.size() - 1).getId();
+        }
+        if (updated > 0) {
+            eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.TRANSACTIONS_RECATEGORIZED,
+                    Map.of("updated", updated)));
+        }
+        return updated;
+    }
+
+    // One event per import rather than per row; clients re-fetch once
+    private void publishImported(Long userId, int imported) {
+        if (imported > 0) {
+            eventPublisher.publishEvent(new UserChangeEvent(userId, UserChangeEvent.Type.TRANSACTIONS_IMPORTED,
+                    Map.of("imported", imported)));
+        }
+    }
+
+    // One database transaction per chunk; flush sends the inserts as JDBC batches and clear keeps the context small
+    private int saveChunk(Long userId, List<Transaction> chunk) {
+        for (Transaction transaction : chunk) {
+            transaction.setCurrency(exchangeRateService.normalize(transaction.getCurrency()));
+        }
+        categorizationService.categorizeMissing(userId, chunk);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Transaction transaction : chunk) {
+                transaction.setId(null);
+                transaction.setUserId(userId);
+                entityManager.persist(transaction);
+            }
+            entityManager.flush();
+            spendRollupService.record(chunk);
+            entityManager.clear();
+        });
+        return chunk.size();
     }
 }
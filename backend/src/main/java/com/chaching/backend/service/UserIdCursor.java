@@ -0,0 +1,45 @@
+package com.chaching.backend.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// Hands out every user id in order, reading the users table's primary key a page at a time, so a job's workers
+// can share it without a scan of the transaction table or every id held in memory. Null once all are handed out.
+final class UserIdCursor {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int pageSize;
+    private final Deque<Long> page = new ArrayDeque<>();
+    private long after;
+    private boolean exhausted;
+    private int handedOut;
+
+    UserIdCursor(JdbcTemplate jdbcTemplate, int pageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageSize = pageSize;
+    }
+
+    synchronized Long next() {
+        if (page.isEmpty() && !exhausted) {
+            List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                    Long.class, after, pageSize);
+            page.addAll(ids);
+            exhausted = ids.size() < pageSize;
+            if (!ids.isEmpty()) {
+                after = ids.get(ids.size() - 1);
+            }
+        }
+        Long next = page.poll();
+        if (next != null) {
+            handedOut++;
+        }
+        return next;
+    }
+
+    synchronized int handedOut() {
+        return handedOut;
+    }
+}
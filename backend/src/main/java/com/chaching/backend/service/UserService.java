@@ -2,31 +2,30 @@ package com.chaching.backend.service;
 
 import com.chaching.backend.model.User;
 import com.chaching.backend.repository.UserRepository;
+import com.chaching.backend.security.UserDetailsCache;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
 @Service
+@Timed("chaching.service")
 public class UserService {
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private UserDetailsCache userDetailsCache;
 
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
 
+    // Passwords are hashed by PasswordHashingService before they get here; nothing on this path runs bcrypt
     public User save(User user) {
-        // Only encrypt password if it's not null and not already encrypted
-        if (user.getPassword() != null && !user.getPassword().startsWith("$2a$")) {
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
-        }
-        return userRepository.save(user);
+        return saveAndEvict(user);
     }
 
     public User findOrCreateUser(String email, String fullName, String profilePicture) {
@@ -35,7 +34,7 @@ public class UserService {
                     // Update profile picture if missing
                     if (existingUser.getProfilePicture() == null && profilePicture != null) {
                         existingUser.setProfilePicture(profilePicture);
-                        return userRepository.save(existingUser); // persist the change
+                        return saveAndEvict(existingUser); // persist the change
                     }
                     return existingUser;
                 })
@@ -46,17 +45,24 @@ public class UserService {
                     newUser.setProfilePicture(profilePicture);
                     newUser.setProvider("google");
                     newUser.setPassword(null); // no password for Google login
-                    return userRepository.save(newUser);
+                    return saveAndEvict(newUser);
                 });
     }
 
-    public User createUser(String email, String password, String fullName) {
+    public User createUser(String email, String passwordHash, String fullName) {
         User user = new User();
         user.setEmail(email);
-        user.setPassword(passwordEncoder.encode(password));
+        user.setPassword(passwordHash);
         user.setFullName(fullName);
         user.setProvider("local");
-        return userRepository.save(user);
+        return saveAndEvict(user);
+    }
+
+    public void updatePasswordHash(Long userId, String passwordHash) {
+        userRepository.findById(userId).ifPresent(user -> {
+            user.setPassword(passwordHash);
+            saveAndEvict(user);
+        });
     }
 
     public Optional<User> findById(Long id) {
@@ -66,4 +72,11 @@ public class UserService {
     public boolean existsByEmail(String email) {
         return userRepository.existsByEmail(email);
     }
+
+    // The auth filter caches users by email, so every write drops that entry once it is committed
+    private User saveAndEvict(User user) {
+        User saved = userRepository.save(user);
+        userDetailsCache.evict(saved.getEmail());
+        return saved;
+    }
 }
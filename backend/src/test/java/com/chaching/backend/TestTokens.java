@@ -0,0 +1,15 @@
+package com.chaching.backend;
+
+import com.chaching.backend.model.User;
+import com.chaching.backend.service.JwtTokenService;
+
+// Mints real application JWTs so tests can call the API without going through Google OAuth
+public final class TestTokens {
+
+    private TestTokens() {
+    }
+
+    public static String bearer(JwtTokenService jwtTokenService, User user) {
+        return "Bearer " + jwtTokenService.generateToken(user);
+    }
+}
@@ -0,0 +1,101 @@
+package com.chaching.backend.config;
+
+import com.chaching.backend.model.UserChangeEvent;
+import com.chaching.backend.security.CustomUserDetails;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two databases on one local Postgres stand in for the primary and a replica; current_database() shows
+// which one a transaction actually ran on
+@SpringBootTest
+class ReplicaRoutingTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @DynamicPropertySource
+    static void databases(DynamicPropertyRegistry registry) throws IOException, SQLException {
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE primary_db");
+            statement.execute("CREATE DATABASE replica_db");
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "primary_db"));
+        registry.add("app.datasource.replicas[0].jdbc-url", () -> postgres.getJdbcUrl("postgres", "replica_db"));
+        registry.add("app.datasource.replicas[0].username", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopDatabases() throws IOException {
+        postgres.close();
+    }
+
+    @AfterEach
+    void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaAndWritesThePrimary() {
+        signIn(6L);
+        assertThat(currentDatabase(true)).isEqualTo("replica_db");
+        assertThat(currentDatabase(false)).isEqualTo("primary_db");
+    }
+
+    // Sign-up, login and background jobs
+    @Test
+    void readsWithoutASignedInUserUseThePrimary() {
+        assertThat(currentDatabase(true)).isEqualTo("primary_db");
+    }
+
+    @Test
+    void recentWritersReadFromThePrimary() {
+        signIn(7L);
+        eventPublisher.publishEvent(new UserChangeEvent(7L, UserChangeEvent.Type.BUDGET_ADDED, null));
+        assertThat(currentDatabase(true)).isEqualTo("primary_db");
+
+        signIn(8L);
+        assertThat(currentDatabase(true)).isEqualTo("replica_db");
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> jdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+
+    private static void signIn(Long userId) {
+        CustomUserDetails user = new CustomUserDetails(userId, "user" + userId + "@example.com", "User", null);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+}
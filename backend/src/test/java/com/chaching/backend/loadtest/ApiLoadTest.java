@@ -0,0 +1,247 @@
+package com.chaching.backend.loadtest;
+
+import com.chaching.backend.TestTokens;
+import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.User;
+import com.chaching.backend.repository.GoalRepository;
+import com.chaching.backend.repository.UserRepository;
+import com.chaching.backend.service.BudgetService;
+import com.chaching.backend.service.JwtTokenService;
+import com.chaching.backend.service.TransactionService;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Drives the real application over HTTP with a mix of list reads and goal contributions and prints
+// throughput and latency percentiles per endpoint. Excluded from the normal build; run with -Pload-test.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class ApiLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration", 20));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup", 5));
+    // Transaction history sizes of the seeded users; most users are small, a few are heavy
+    private static final int[] HISTORY_SIZES = {10, 10, 10, 100, 100, 1_000, 5_000, 20_000};
+    private static final String[] CATEGORIES = {"Food", "Rent", "Transport", "Shopping", "Utilities"};
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private GoalRepository goalRepository;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private enum Endpoint {
+        TRANSACTIONS, BUDGETS, GOALS, CONTRIBUTE
+    }
+
+    private record SeededUser(String authorization, long goalId) {
+    }
+
+    @Test
+    void apiThroughputAndLatency() throws Exception {
+        List<SeededUser> users = seed();
+
+        run(users, WARMUP);
+        Map<Endpoint, long[]> latencies = new EnumMap<>(Endpoint.class);
+        AtomicLong failures = new AtomicLong();
+        long elapsedNanos = run(users, DURATION, latencies, failures);
+
+        report(latencies, elapsedNanos);
+        assertThat(failures.get()).as("failed requests").isZero();
+    }
+
+    private List<SeededUser> seed() {
+        List<SeededUser> users = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(11);
+
+        for (int i = 0; i < HISTORY_SIZES.length; i++) {
+            User user = new User();
+            user.setEmail("load-" + i + "@example.com");
+            user.setFullName("Load User " + i);
+            user = userRepository.save(user);
+
+            List<Transaction> history = new ArrayList<>(HISTORY_SIZES[i]);
+            LocalDate start = LocalDate.now().minusYears(3);
+            for (int j = 0; j < HISTORY_SIZES[i]; j++) {
+                Transaction transaction = new Transaction();
+                transaction.setAmount(Money.ofCents(random.nextLong(100, 20_000)));
+                transaction.setDescription("Merchant " + random.nextInt(300));
+                transaction.setDate(start.plusDays(random.nextInt(3 * 365)));
+                transaction.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                history.add(transaction);
+            }
+            transactionService.importTransactions(user.getId(), history);
+
+            for (String category : CATEGORIES) {
+                budgetService.addBudget(user.getId(), new Budget(null, null, Money.ofCents(50_000), category, null));
+            }
+            Goal goal = goalRepository.save(new Goal(null, user.getId(), "Emergency fund", Money.ofCents(1_000_000), Money.ZERO, null));
+
+            users.add(new SeededUser(TestTokens.bearer(jwtTokenService, user), goal.getId()));
+        }
+        return users;
+    }
+
+    private void run(List<SeededUser> users, Duration duration) throws Exception {
+        run(users, duration, new EnumMap<>(Endpoint.class), new AtomicLong());
+    }
+
+    private long run(List<SeededUser> users, Duration duration, Map<Endpoint, long[]> latencies,
+                     AtomicLong failures) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        List<Future<Map<Endpoint, LatencyLog>>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        for (int i = 0; i < CONCURRENCY; i++) {
+            long seed = i;
+            workers.add(executor.submit((Callable<Map<Endpoint, LatencyLog>>) () -> work(users, deadline, seed, failures)));
+        }
+
+        Map<Endpoint, LatencyLog> merged = new EnumMap<>(Endpoint.class);
+        for (Future<Map<Endpoint, LatencyLog>> worker : workers) {
+            worker.get().forEach((endpoint, log) -> merged.computeIfAbsent(endpoint, key -> new LatencyLog()).addAll(log));
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        merged.forEach((endpoint, log) -> latencies.put(endpoint, log.sorted()));
+        return elapsed;
+    }
+
+    // Request mix: mostly list reads, with roughly one write in ten
+    private Map<Endpoint, LatencyLog> work(List<SeededUser> users, long deadline, long seed, AtomicLong failures) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<Endpoint, LatencyLog> logs = new EnumMap<>(Endpoint.class);
+
+        while (System.nanoTime() < deadline) {
+            SeededUser user = users.get(random.nextInt(users.size()));
+            int roll = random.nextInt(100);
+            Endpoint endpoint = roll < 40 ? Endpoint.TRANSACTIONS
+                    : roll < 65 ? Endpoint.BUDGETS
+                    : roll < 90 ? Endpoint.GOALS
+                    : Endpoint.CONTRIBUTE;
+
+            HttpRequest request = request(endpoint, user);
+            long begin = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    failures.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failures.incrementAndGet();
+            }
+            logs.computeIfAbsent(endpoint, key -> new LatencyLog()).add(System.nanoTime() - begin);
+        }
+        return logs;
+    }
+
+    private HttpRequest request(Endpoint endpoint, SeededUser user) {
+        String base = "http://localhost:" + port;
+        HttpRequest.Builder builder = switch (endpoint) {
+            case TRANSACTIONS -> HttpRequest.newBuilder(URI.create(base + "/api/transactions")).GET();
+            case BUDGETS -> HttpRequest.newBuilder(URI.create(base + "/api/budgets")).GET();
+            case GOALS -> HttpRequest.newBuilder(URI.create(base + "/api/goals")).GET();
+            case CONTRIBUTE -> HttpRequest.newBuilder(URI.create(base + "/api/goals/" + user.goalId() + "/contribute"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":1.25}"));
+        };
+        return builder.header("Authorization", user.authorization())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private void report(Map<Endpoint, long[]> latencies, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = latencies.values().stream().mapToLong(samples -> samples.length).sum();
+
+        System.out.printf("%nLoad test (%s threads): %d workers, %.1fs, %d requests, %.1f req/s%n",
+                virtualThreads ? "virtual" : "platform", CONCURRENCY, seconds, total, total / seconds);
+        System.out.printf("%-14s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms");
+        latencies.forEach((endpoint, samples) -> System.out.printf("%-14s %10d %10.1f %10.2f %10.2f %10.2f%n",
+                endpoint, samples.length, samples.length / seconds,
+                percentile(samples, 50), percentile(samples, 95), percentile(samples, 99)));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static final class LatencyLog {
+        private long[] samples = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        void addAll(LatencyLog other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.samples[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
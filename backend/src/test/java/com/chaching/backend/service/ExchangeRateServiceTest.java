@@ -0,0 +1,140 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.BudgetStatus;
+import com.chaching.backend.model.Dashboard;
+import com.chaching.backend.model.ExchangeRate;
+import com.chaching.backend.model.ExchangeRates;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.TransactionSummary;
+import com.chaching.backend.repository.ExchangeRateRepository;
+import com.chaching.backend.repository.TransactionRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class ExchangeRateServiceTest {
+
+    private static final long USER_ID = 91L;
+    private static final YearMonth MONTH = YearMonth.of(2025, 5);
+
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private SpendRollupService spendRollupService;
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void convertsEachCurrencysTotalsIntoTheRequestedOne() {
+        exchangeRateService.updateRates(Map.of("EUR", new BigDecimal("0.5"), "GBP", new BigDecimal("0.8")));
+        ExchangeRates rates = exchangeRateService.current();
+        assertThat(rates.rates()).containsKeys("USD", "EUR", "GBP");
+
+        add(-5_000, "usd");
+        add(-2_000, "EUR");
+        add(-1_001, "EUR");
+        add(4_000, "EUR"); // Income, which budgets leave out
+        Budget budget = budgetService.addBudget(USER_ID, new Budget(null, null, Money.ofCents(10_000), "Food", "eur"));
+        assertThat(budget.getCurrency()).isEqualTo("EUR");
+
+        List<TransactionSummary> inEuros = summarize(rates, exchangeRateService.require(rates, "eur"));
+        assertThat(inEuros).singleElement().satisfies(summary -> {
+            assertThat(Money.centsOf(summary.getTotal())).isEqualTo(-2_500 - 3_001 + 4_000);
+            assertThat(summary.getCount()).isEqualTo(4);
+            assertThat(summary.getCurrency()).isEqualTo("EUR");
+        });
+        assertThat(Money.centsOf(summarize(rates, "USD").get(0).getTotal())).isEqualTo(-5_000 - 6_002 + 8_000);
+
+        BudgetStatus status = budgetService.getBudgetStatus(USER_ID, MONTH, rates).get(0);
+        assertThat(status.getCurrency()).isEqualTo("EUR");
+        assertThat(Money.centsOf(status.getSpent())).isEqualTo(2_500 + 3_001);
+    }
+
+    // Another instance added CHF and wrote a transaction in it before this one reloaded its rates
+    @Test
+    void reloadsForACurrencyTheSnapshotDoesNotKnow() {
+        long userId = USER_ID + 1;
+        ExchangeRates stale = exchangeRateService.current();
+        exchangeRateRepository.save(new ExchangeRate("CHF", new BigDecimal("0.9"), Instant.now()));
+        transactionRepository.save(new Transaction(null, userId, Money.ofCents(-900), "Train", MONTH.atDay(5), "Travel", "CHF"));
+        spendRollupService.rebuild(userId);
+        budgetService.addBudget(userId, new Budget(null, null, Money.ofCents(2_500), "Travel", null));
+        assertThat(stale.supports("CHF")).isFalse();
+
+        List<TransactionSummary> summary = transactionService.summarize(userId, MONTH.atDay(1), MONTH.atEndOfMonth(),
+                TransactionSummary.GroupBy.CATEGORY, stale, "USD");
+        assertThat(Money.centsOf(summary.get(0).getTotal())).isEqualTo(-1_000);
+
+        Dashboard dashboard = dashboardService.getDashboard(userId, MONTH, stale, "USD");
+        assertThat(dashboard.getFailedParts()).isEmpty();
+        assertThat(Money.centsOf(dashboard.getBudgets().get(0).getSpent())).isEqualTo(1_000);
+        assertThat(Money.centsOf(dashboard.getSummary().getSpentThisMonth())).isEqualTo(1_000);
+        assertThat(Money.centsOf(dashboard.getSummary().getRemainingThisMonth())).isEqualTo(1_500);
+    }
+
+    // Each figure is converted once, so the dashboard's budget totals add up in any currency
+    @Test
+    void dashboardBudgetTotalsAddUp() {
+        exchangeRateService.updateRates(Map.of("EUR", new BigDecimal("0.3")));
+        long userId = USER_ID + 2;
+        transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(-1_001), "Bus", MONTH.atDay(4), "Travel", null));
+        transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(-333), "Bus", MONTH.atDay(5), "Travel", "EUR"));
+        budgetService.addBudget(userId, new Budget(null, null, Money.ofCents(10_001), "Travel", "EUR"));
+
+        Dashboard.Summary summary = dashboardService.getDashboard(userId, MONTH, exchangeRateService.current(), "USD").getSummary();
+        assertThat(Money.centsOf(summary.getBudgetedThisMonth()) - Money.centsOf(summary.getSpentThisMonth()))
+                .isEqualTo(Money.centsOf(summary.getRemainingThisMonth()));
+    }
+
+    @Test
+    void rejectsUnknownCurrencies() {
+        assertThatThrownBy(() -> exchangeRateService.require(exchangeRateService.current(), "XYZ"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("400");
+        assertThatThrownBy(() -> exchangeRateService.updateRates(Map.of("USD", new BigDecimal("2"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("400");
+    }
+
+    private List<TransactionSummary> summarize(ExchangeRates rates, String currency) {
+        return transactionService.summarize(USER_ID, MONTH.atDay(1), MONTH.atEndOfMonth(),
+                TransactionSummary.GroupBy.CATEGORY, rates, currency);
+    }
+
+    private void add(long cents, String currency) {
+        transactionService.createTransaction(USER_ID,
+                new Transaction(null, null, Money.ofCents(cents), "Groceries", MONTH.atDay(3), "Food", currency));
+    }
+}
@@ -0,0 +1,117 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Goal;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.repository.GoalContributionRepository;
+import com.chaching.backend.repository.GoalRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class GoalContributionStressTest {
+
+    private static final int THREADS = 16;
+    private static final int CONTRIBUTIONS_PER_THREAD = 250;
+    private static final long OWNER_ID = 1L;
+
+    @Autowired
+    private GoalService goalService;
+
+    @Autowired
+    private GoalContributionAggregator goalContributionAggregator;
+
+    @Autowired
+    private GoalRepository goalRepository;
+
+    @Autowired
+    private GoalContributionRepository goalContributionRepository;
+
+    @Test
+    void concurrentContributionsAreNotLost() throws Exception {
+        Goal goal = goalRepository.save(new Goal(null, OWNER_ID, "Holiday", Money.ofCents(100_000_000), Money.ZERO, null));
+
+        runConcurrently(() -> goalService.contributeToGoal(OWNER_ID, goal.getId(), Money.ofCents(100)));
+
+        assertThat(goalRepository.findById(goal.getId()).orElseThrow().getCurrentAmount())
+                .isEqualTo(Money.ofCents(100L * THREADS * CONTRIBUTIONS_PER_THREAD));
+        assertThat(goalContributionRepository.countByGoalId(goal.getId()))
+                .isEqualTo((long) THREADS * CONTRIBUTIONS_PER_THREAD);
+    }
+
+    @Test
+    void contributionWithoutAnAmountIsABadRequest() {
+        Goal goal = goalRepository.save(new Goal(null, OWNER_ID, "Bike", Money.ofCents(100_000), Money.ZERO, null));
+
+        assertThatThrownBy(() -> goalService.contributeToGoal(OWNER_ID, goal.getId(), null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("400");
+        assertThat(goalContributionRepository.countByGoalId(goal.getId())).isZero();
+    }
+
+    @Test
+    void batchedContributionsAreNotLostAndAreLedgered() throws Exception {
+        Goal goal = goalRepository.save(new Goal(null, OWNER_ID, "Car", Money.ofCents(100_000_000), Money.ZERO, null));
+
+        runConcurrently(() -> goalContributionAggregator.submit(OWNER_ID, goal.getId(), Money.ofCents(100)).join());
+
+        assertThat(goalRepository.findById(goal.getId()).orElseThrow().getCurrentAmount())
+                .isEqualTo(Money.ofCents(100L * THREADS * CONTRIBUTIONS_PER_THREAD));
+        assertThat(goalContributionRepository.countByGoalId(goal.getId()))
+                .isEqualTo((long) THREADS * CONTRIBUTIONS_PER_THREAD);
+    }
+
+    @Test
+    void contributionToAnotherUsersGoalIsRejected() {
+        Goal goal = goalRepository.save(new Goal(null, OWNER_ID, "Laptop", Money.ofCents(100_000), Money.ofCents(1_000), null));
+
+        assertThatThrownBy(() -> goalService.contributeToGoal(OWNER_ID + 1, goal.getId(), Money.ofCents(500)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
+        assertThatThrownBy(() -> goalContributionAggregator.submit(OWNER_ID + 1, goal.getId(), Money.ofCents(500)).join())
+                .hasCauseInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
+        assertThat(goalRepository.findById(goal.getId()).orElseThrow().getCurrentAmount()).isEqualTo(Money.ofCents(1_000));
+    }
+
+    private void runConcurrently(Runnable contribution) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            workers.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                for (int j = 0; j < CONTRIBUTIONS_PER_THREAD; j++) {
+                    contribution.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.chaching.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordMatcherTest {
+
+    private static KeywordMatcher matcher(String... keywordsAndValues) {
+        List<KeywordMatcher.Keyword> keywords = new ArrayList<>();
+        for (int i = 0; i < keywordsAndValues.length; i += 2) {
+            keywords.add(new KeywordMatcher.Keyword(keywordsAndValues[i], keywordsAndValues[i + 1]));
+        }
+        return new KeywordMatcher(keywords);
+    }
+
+    @Test
+    void matchesWholeWordsIgnoringCase() {
+        KeywordMatcher matcher = matcher("bar", "Drinks", "uber", "Transport");
+
+        assertThat(matcher.match("Night at the BAR")).isEqualTo("Drinks");
+        assertThat(matcher.match("bar tab")).isEqualTo("Drinks");
+        assertThat(matcher.match("Barber shop")).isNull();
+        assertThat(matcher.match("UBER *TRIP 8812")).isEqualTo("Transport");
+        assertThat(matcher.match("Tuberculosis test")).isNull();
+        assertThat(matcher.match(null)).isNull();
+    }
+
+    @Test
+    void prefersTheLongestKeywordThenTheFirstListed() {
+        KeywordMatcher matcher = matcher("coffee", "Food", "whole foods", "Groceries", "foods", "Other",
+                "amazon", "Shopping", "amazon", "Ignored");
+
+        assertThat(matcher.match("Coffee at Whole Foods Market")).isEqualTo("Groceries");
+        assertThat(matcher.match("Amazon Marketplace")).isEqualTo("Shopping");
+    }
+
+    @Test
+    void findsOverlappingKeywordsThroughFailureLinks() {
+        KeywordMatcher matcher = matcher("he", "A", "she", "B", "his", "C", "hers", "D", "# 2", "E");
+
+        assertThat(matcher.match("ushers")).isNull();
+        assertThat(matcher.match("u she")).isEqualTo("B");
+        assertThat(matcher.match("hers")).isEqualTo("D");
+        assertThat(matcher.match("Teachers # 2")).isEqualTo("E");
+    }
+
+    @Test
+    void handlesNonAsciiKeywordsAndText() {
+        KeywordMatcher matcher = matcher("café", "Food", "€", "Fees");
+
+        assertThat(matcher.match("CAFÉ DE FLORE")).isEqualTo("Food");
+        assertThat(matcher.match("Fee 2€")).isEqualTo("Fees");
+        assertThat(KeywordMatcher.EMPTY.match("anything")).isNull();
+    }
+}
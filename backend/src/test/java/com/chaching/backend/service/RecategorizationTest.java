@@ -0,0 +1,94 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.CategoryRule;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.repository.TransactionRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class RecategorizationTest {
+
+    private static final long USER_ID = 171L;
+    private static final YearMonth MONTH = YearMonth.of(2025, 3);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CategorizationService categorizationService;
+
+    @Autowired
+    private SpendRollupService spendRollupService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RecategorizationJob recategorizationJob;
+
+    @Autowired
+    private UserService userService;
+
+    // Blank categories come from rows written before categorizeMissing treated them as missing
+    @Test
+    void movesNullAndBlankCategoriesIntoTheRulesCategory() {
+        transactionRepository.saveAll(List.of(
+                row(-400, "Uber ride", null),
+                row(-600, "Uber eats", " "),
+                row(-250, "Corner shop", null),
+                row(-900, "Uber to airport", "Travel")));
+        spendRollupService.rebuild(USER_ID);
+        assertThat(rollups()).containsExactly("  600 1", "Travel 900 1", "Uncategorized 650 2");
+
+        categorizationService.addRule(USER_ID, new CategoryRule(null, null, "uber", "Transport"));
+        assertThat(transactionService.recategorizeUncategorized(USER_ID)).isEqualTo(2);
+
+        List<String> rollups = rollups();
+        assertThat(rollups).containsExactly("Transport 1000 2", "Travel 900 1", "Uncategorized 250 1");
+        spendRollupService.rebuild(USER_ID);
+        assertThat(rollups()).isEqualTo(rollups);
+    }
+
+    // The job walks the users table, so only transactions of real accounts are picked up
+    @Test
+    void jobRecategorizesEveryUsersHistory() {
+        List<Long> userIds = List.of(
+                userService.createUser("recategorize-1@example.com", null, "One").getId(),
+                userService.createUser("recategorize-2@example.com", null, "Two").getId());
+        for (Long userId : userIds) {
+            transactionRepository.save(new Transaction(null, userId, Money.ofCents(-100), "Netflix", MONTH.atDay(1), null, null));
+            spendRollupService.rebuild(userId);
+        }
+        categorizationService.addRule(null, new CategoryRule(null, null, "netflix", "Subscriptions"));
+
+        recategorizationJob.runAll().join();
+        for (Long userId : userIds) {
+            assertThat(transactionRepository.findByUserId(userId))
+                    .extracting(Transaction::getCategory)
+                    .containsExactly("Subscriptions");
+        }
+    }
+
+    private List<String> rollups() {
+        return spendRollupService.getMonth(USER_ID, MONTH).stream()
+                .filter(rollup -> rollup.getTransactionCount() > 0)
+                .sorted((a, b) -> a.getCategory().compareTo(b.getCategory()))
+                .map(rollup -> rollup.getCategory() + " " + rollup.getTotalCents() + " " + rollup.getTransactionCount())
+                .toList();
+    }
+
+    private static Transaction row(long cents, String description, String category) {
+        return new Transaction(null, USER_ID, Money.ofCents(cents), description, MONTH.atDay(12), category, null);
+    }
+}
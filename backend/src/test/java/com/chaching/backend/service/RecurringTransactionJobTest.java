@@ -0,0 +1,102 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.RecurringFrequency;
+import com.chaching.backend.model.RecurringRunCheckpoint;
+import com.chaching.backend.model.RecurringTransaction;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.repository.RecurringRunCheckpointRepository;
+import com.chaching.backend.repository.RecurringTransactionRepository;
+import com.chaching.backend.repository.TransactionRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two templates per chunk, so a user's templates straddle chunk boundaries
+@SpringBootTest(properties = {"recurring.chunk-size=2", "recurring.partition-users=100", "recurring.workers=3"})
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class RecurringTransactionJobTest {
+
+    @Autowired
+    private RecurringTransactionJob job;
+
+    @Autowired
+    private RecurringTransactionRepository recurringTransactionRepository;
+
+    @Autowired
+    private RecurringRunCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void generatesEachDueOccurrenceOnceAcrossRuns() {
+        long userId = 11L;
+        RecurringTransaction rent = template(userId, "Rent", RecurringFrequency.MONTHLY, LocalDate.of(2025, 1, 31), null);
+        RecurringTransaction trial = template(userId, "Trial", RecurringFrequency.DAILY, LocalDate.of(2025, 4, 10), LocalDate.of(2025, 4, 12));
+        LocalDate today = LocalDate.of(2025, 4, 15);
+
+        job.runAll(today).join();
+        job.runAll(today).join();
+        assertThat(transactionRepository.findByUserId(userId)).extracting(Transaction::getDate).containsExactlyInAnyOrder(
+                LocalDate.of(2025, 1, 31), LocalDate.of(2025, 2, 28), LocalDate.of(2025, 3, 31),
+                LocalDate.of(2025, 4, 10), LocalDate.of(2025, 4, 11), LocalDate.of(2025, 4, 12));
+        assertThat(recurringTransactionRepository.findById(rent.getId()).orElseThrow().getNextRunDate()).isEqualTo(LocalDate.of(2025, 4, 30));
+        assertThat(recurringTransactionRepository.findById(trial.getId()).orElseThrow().getNextRunDate()).isNull();
+
+        job.runAll(LocalDate.of(2025, 5, 1)).join();
+        assertThat(transactionRepository.findByUserId(userId)).hasSize(7);
+    }
+
+    @Test
+    void processesEveryPartitionInChunks() {
+        LocalDate today = LocalDate.of(2025, 6, 1);
+        long[] users = {150L, 151L, 305L};
+        for (long userId : users) {
+            for (int i = 0; i < 3; i++) {
+                template(userId, "Subscription " + i, RecurringFrequency.WEEKLY, today, null);
+            }
+        }
+
+        job.runAll(today).join();
+        for (long userId : users) {
+            assertThat(transactionRepository.findByUserId(userId)).hasSize(3);
+        }
+        assertThat(checkpointRepository.findByRunDate(today))
+                .filteredOn(checkpoint -> checkpoint.getPartitionNo() == 1)
+                .singleElement()
+                .satisfies(checkpoint -> {
+                    assertThat(checkpoint.isCompleted()).isTrue();
+                    assertThat(checkpoint.getGenerated()).isEqualTo(6);
+                    assertThat(checkpoint.getLastUserId()).isEqualTo(151L);
+                });
+        assertThat(checkpointRepository.findByRunDate(today)).allMatch(RecurringRunCheckpoint::isCompleted);
+    }
+
+    // The template without a frequency fails to generate; the templates after it in the same chunk still run
+    @Test
+    void quarantinesATemplateThatKeepsFailing() {
+        LocalDate today = LocalDate.of(2025, 7, 1);
+        RecurringTransaction broken = template(421L, "Broken", null, today, null);
+        template(421L, "Gym", RecurringFrequency.MONTHLY, today, null);
+        template(422L, "Phone", RecurringFrequency.MONTHLY, today, null);
+
+        job.runAll(today).join();
+        assertThat(recurringTransactionRepository.findById(broken.getId()).orElseThrow().getQuarantinedAt()).isNotNull();
+        assertThat(transactionRepository.findByUserId(421L)).extracting(Transaction::getDescription).containsExactly("Gym");
+        assertThat(transactionRepository.findByUserId(422L)).hasSize(1);
+        assertThat(checkpointRepository.findByRunDate(today)).allMatch(RecurringRunCheckpoint::isCompleted);
+    }
+
+    private RecurringTransaction template(long userId, String description, RecurringFrequency frequency,
+                                          LocalDate start, LocalDate end) {
+        return recurringTransactionRepository.save(new RecurringTransaction(null, userId, Money.ofCents(1000),
+                description, "Bills", frequency, start, end, 0, start, null));
+    }
+}
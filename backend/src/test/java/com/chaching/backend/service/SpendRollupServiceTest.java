@@ -0,0 +1,107 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.MonthlySpend;
+import com.chaching.backend.model.Transaction;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class SpendRollupServiceTest {
+
+    private static final long USER_ID = 131L;
+    private static final YearMonth MONTH = YearMonth.of(2025, 2);
+
+    @Autowired
+    private SpendRollupService spendRollupService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private SpendRollupRebuildJob spendRollupRebuildJob;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void countsOnlyExpensesAndRebuildsToTheSameTotals() {
+        add(USER_ID, -1_200, "Food");
+        add(USER_ID, -300, "Food");
+        add(USER_ID, 5_000, "Salary");
+        add(USER_ID, -700, null);
+
+        List<String> rollups = rollups(USER_ID);
+        assertThat(rollups).containsExactly("Food 1500 2", "Uncategorized 700 1");
+
+        spendRollupService.rebuild(USER_ID);
+        assertThat(rollups(USER_ID)).isEqualTo(rollups);
+    }
+
+    // Writes that add new categories while the user is rebuilt are neither lost nor counted twice
+    @Test
+    void rebuildsWhileTransactionsAreWritten() throws Exception {
+        long userId = USER_ID + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    add(userId, -100, "Category " + (i % 10));
+                }
+            });
+            Future<?> rebuilder = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    spendRollupService.rebuild(userId);
+                }
+            });
+            writer.get(2, TimeUnit.MINUTES);
+            rebuilder.get(2, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> rollups = rollups(userId);
+        assertThat(rollups).hasSize(10).allMatch(rollup -> rollup.endsWith(" 1000 10"));
+        spendRollupService.rebuild(userId);
+        assertThat(rollups(userId)).isEqualTo(rollups);
+    }
+
+    @Test
+    void rebuildJobRestoresEveryUsersRollups() {
+        long userId = userService.createUser("rollups@example.com", null, "Rollups").getId();
+        add(userId, -2_500, "Rent");
+        jdbcTemplate.update("UPDATE monthly_spend SET total_cents = 1, transaction_count = 7 WHERE user_id = ?", userId);
+
+        spendRollupRebuildJob.rebuildAll();
+        assertThat(rollups(userId)).containsExactly("Rent 2500 1");
+    }
+
+    private List<String> rollups(long userId) {
+        return spendRollupService.getMonth(userId, MONTH).stream()
+                .sorted((a, b) -> a.getCategory().compareTo(b.getCategory()))
+                .map(rollup -> rollup.getCategory() + " " + rollup.getTotalCents() + " " + rollup.getTransactionCount())
+                .toList();
+    }
+
+    private void add(long userId, long cents, String category) {
+        transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(cents), "Row", MONTH.atDay(10), category, null));
+    }
+}
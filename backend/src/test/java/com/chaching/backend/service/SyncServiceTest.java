@@ -0,0 +1,131 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Budget;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.SyncPage;
+import com.chaching.backend.model.Transaction;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class SyncServiceTest {
+
+    private static final long USER_ID = 42L;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("archive.dir", Files.createTempDirectory("sync-test")::toString);
+    }
+
+    @Test
+    void returnsChangesAndTombstonesSinceTheLastSync() {
+        Transaction kept = transactionService.createTransaction(USER_ID, transaction("Coffee"));
+        Transaction removed = transactionService.createTransaction(USER_ID, transaction("Refunded"));
+        SyncPage first = syncService.changesSince(USER_ID, null, 1);
+        assertThat(first.getTransactions()).extracting(Transaction::getId).containsExactly(kept.getId());
+        assertThat(first.isHasMore()).isTrue();
+
+        SyncPage second = syncService.changesSince(USER_ID, first.getNext(), null);
+        assertThat(second.getTransactions()).extracting(Transaction::getId).containsExactly(removed.getId());
+        assertThat(second.isHasMore()).isFalse();
+
+        transactionService.deleteTransaction(USER_ID, removed.getId());
+        SyncPage third = syncService.changesSince(USER_ID, second.getNext(), null);
+        assertThat(third.getTransactions()).isEmpty();
+        assertThat(third.getDeleted()).containsExactly(new SyncPage.Deleted("transaction", removed.getId()));
+
+        assertThat(syncService.changesSince(USER_ID, third.getNext(), null).getDeleted()).isEmpty();
+    }
+
+    // The slow writer takes its change_seq first but commits last; syncing past the fast writer's row in the
+    // meantime must not skip it
+    @Test
+    void changesCommittedLateAreNotSkipped() throws Exception {
+        long userId = USER_ID + 1;
+        String start = syncService.changesSince(userId, null, null).getNext();
+
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            try (PreparedStatement insert = slow.prepareStatement(
+                    "INSERT INTO budget (user_id, amount_cents, category) VALUES (?, 100, 'Slow')")) {
+                insert.setLong(1, userId);
+                insert.executeUpdate();
+            }
+
+            budgetService.addBudget(userId, new Budget(null, null, Money.ofCents(200), "Fast", null));
+
+            SyncPage during = syncService.changesSince(userId, start, null);
+            assertThat(during.getBudgets()).isEmpty();
+            slow.commit();
+
+            SyncPage after = syncService.changesSince(userId, during.getNext(), null);
+            assertThat(after.getBudgets()).extracting(Budget::getCategory).containsExactly("Slow", "Fast");
+        }
+    }
+
+    // Paged two at a time, so pages hold only archived rows, both kinds, and only live ones
+    @Test
+    void syncFromTheStartIncludesArchivedHistory() {
+        long userId = USER_ID + 2;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(transactionService.createTransaction(userId,
+                    new Transaction(null, null, Money.ofCents(-100), "Old " + i, LocalDate.of(2021, 1 + i, 1), null, null)).getId());
+        }
+        ids.add(transactionService.createTransaction(userId, transaction("New 0")).getId());
+        ids.add(transactionService.createTransaction(userId, transaction("New 1")).getId());
+        assertThat(transactionArchiveService.archiveUser(userId, LocalDate.of(2024, 1, 1))).isEqualTo(3);
+
+        List<Long> synced = new ArrayList<>();
+        String next = null;
+        SyncPage page;
+        do {
+            page = syncService.changesSince(userId, next, 2);
+            page.getTransactions().forEach(transaction -> synced.add(transaction.getId()));
+            next = page.getNext();
+        } while (page.isHasMore());
+        assertThat(synced).containsExactlyElementsOf(ids);
+        assertThat(syncService.changesSince(userId, null, 1000).getDeleted()).isEmpty();
+
+        Transaction later = transactionService.createTransaction(userId, transaction("Later"));
+        assertThat(syncService.changesSince(userId, next, null).getTransactions())
+                .extracting(Transaction::getId)
+                .containsExactly(later.getId());
+    }
+
+    private static Transaction transaction(String description) {
+        return new Transaction(null, null, Money.ofCents(500), description, LocalDate.of(2025, 3, 1), "Food", null);
+    }
+}
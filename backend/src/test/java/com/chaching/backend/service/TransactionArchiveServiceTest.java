@@ -0,0 +1,156 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.ArchivedSegment;
+import com.chaching.backend.model.ExportFormat;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.MonthlySpend;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.TransactionPage;
+import com.chaching.backend.model.TransactionSummary;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Three rows per block, so reads cross block boundaries
+@SpringBootTest(properties = "archive.block-rows=3")
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class TransactionArchiveServiceTest {
+
+    private static final long USER_ID = 77L;
+    private static final LocalDate CUTOFF = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FROM = LocalDate.of(2020, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2030, 1, 1);
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("archive.dir", Files.createTempDirectory("archive-test")::toString);
+    }
+
+    @Autowired
+    private TransactionArchiveService archiveService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private SpendRollupService spendRollupService;
+
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void readsTheSameHistoryBeforeAndAfterArchiving() throws IOException {
+        for (int i = 0; i < 8; i++) {
+            add(LocalDate.of(2022, 3 + i, 10), i % 2 == 0 ? "Food" : null);
+            add(LocalDate.of(2023, 1 + i, 20), "Food");
+            add(LocalDate.now().minusDays(i), "Rent");
+        }
+        Snapshot before = snapshot();
+        long tombstones = tombstones();
+
+        assertThat(archiveService.archiveUser(USER_ID, CUTOFF)).isEqualTo(16);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE user_id = ?", Long.class, USER_ID))
+                .isEqualTo(8);
+        assertThat(snapshot()).isEqualTo(before);
+        assertThat(tombstones()).isEqualTo(tombstones);
+
+        spendRollupService.rebuild(USER_ID);
+        assertThat(snapshot()).isEqualTo(before);
+
+        Long archivedId = before.all().get(0).getId();
+        assertThatThrownBy(() -> transactionService.deleteTransaction(USER_ID, archivedId))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
+    }
+
+    @Test
+    void archivingMoreOfAYearWritesTheNextGeneration() {
+        long userId = USER_ID + 1;
+        Transaction first = transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(-500), "Books", LocalDate.of(2023, 2, 1), "Books", null));
+        archiveService.archiveUser(userId, CUTOFF);
+        Transaction late = transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(-700), "Late import", LocalDate.of(2023, 6, 1), "Books", null));
+        archiveService.archiveUser(userId, CUTOFF);
+
+        assertThat(archiveService.getSegments()).filteredOn(segment -> segment.getUserId() == userId)
+                .singleElement()
+                .extracting(ArchivedSegment::getGeneration, ArchivedSegment::getRowCount)
+                .containsExactly(2, 2L);
+        assertThat(transactionService.getTransactionsByUser(userId)).containsExactly(first, late);
+    }
+
+    private record Snapshot(List<Transaction> all, List<Transaction> paged, List<Transaction> recent,
+                            List<Transaction> range, List<String> byMonth, List<String> byCategory,
+                            String export, List<String> rollups) {
+    }
+
+    private Snapshot snapshot() throws IOException {
+        List<Transaction> paged = new ArrayList<>();
+        Long after = null;
+        do {
+            TransactionPage page = transactionService.getTransactionPage(USER_ID, after, 5);
+            paged.addAll(page.getItems());
+            after = page.getNextCursor();
+        } while (after != null);
+
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        exportService.exportUser(USER_ID, ExportFormat.CSV, export);
+        List<String> rollups = new ArrayList<>();
+        for (YearMonth month = YearMonth.of(2022, 1); month.isBefore(YearMonth.of(2024, 1)); month = month.plusMonths(1)) {
+            for (MonthlySpend spend : spendRollupService.getMonth(USER_ID, month)) {
+                rollups.add(month + " " + spend.getCategory() + " " + spend.getTotalCents() + " " + spend.getTransactionCount());
+            }
+        }
+        return new Snapshot(
+                transactionService.getTransactionsByUser(USER_ID).stream()
+                        .sorted((a, b) -> Long.compare(a.getId(), b.getId())).toList(),
+                paged,
+                transactionService.getRecentTransactions(USER_ID, 12),
+                transactionService.getTransactionsInRange(USER_ID, LocalDate.of(2022, 6, 1), LocalDate.of(2023, 6, 30),
+                        "Food", null, 50).getItems(),
+                summaries(TransactionSummary.GroupBy.MONTH),
+                summaries(TransactionSummary.GroupBy.CATEGORY),
+                export.toString(),
+                rollups);
+    }
+
+    // TransactionSummary has no equals of its own
+    private List<String> summaries(TransactionSummary.GroupBy groupBy) {
+        return transactionService.summarize(USER_ID, FROM, TO, groupBy, exchangeRateService.current(), null).stream()
+                .map(summary -> summary.getKey() + " " + summary.getTotal() + " " + summary.getCount())
+                .toList();
+    }
+
+    private long tombstones() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sync_tombstone WHERE user_id = ?", Long.class, USER_ID);
+    }
+
+    private void add(LocalDate date, String category) {
+        transactionService.createTransaction(USER_ID,
+                new Transaction(null, null, Money.ofCents(-1234), "Row " + date, date, category, null));
+    }
+}
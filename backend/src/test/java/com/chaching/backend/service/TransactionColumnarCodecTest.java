@@ -0,0 +1,83 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionColumnarCodecTest {
+
+    @Test
+    void roundTripsAcrossBlocksWithNulls() throws IOException {
+        List<Transaction> rows = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            rows.add(new Transaction(i * 7, i < 6 ? 1L : 2L, Money.ofCents(i % 2 == 0 ? -i * 150 : i * 99),
+                    "Row " + i + ", with \"quotes\" ✓", LocalDate.of(2024, 1, 1).plusDays(i * 3), i % 3 == 0 ? "Food" : "Rent",
+                    i % 4 == 0 ? "EUR" : null));
+        }
+        rows.add(new Transaction(500L, null, null, null, null, null, null));
+        rows.add(new Transaction(501L, 3L, Money.ofCents(Long.MIN_VALUE), "", LocalDate.of(1970, 1, 1), "Food", "GBP"));
+
+        byte[] encoded = encode(rows, 4);
+
+        TransactionColumnarCodec.Decoder decoder = new TransactionColumnarCodec.Decoder(new ByteArrayInputStream(encoded));
+        List<Transaction> decoded = new ArrayList<>();
+        List<Transaction> block;
+        while ((block = decoder.nextBlock()) != null) {
+            assertThat(block).hasSizeLessThanOrEqualTo(4);
+            decoded.addAll(block);
+        }
+        assertThat(decoded).isEqualTo(rows);
+    }
+
+    @Test
+    void truncatedStreamIsAnError() throws IOException {
+        byte[] encoded = encode(List.of(new Transaction(1L, 1L, Money.ofCents(100), "a", LocalDate.now(), "b", null)), 4);
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+
+        TransactionColumnarCodec.Decoder decoder = new TransactionColumnarCodec.Decoder(new ByteArrayInputStream(truncated));
+        assertThat(decoder.nextBlock()).hasSize(1);
+        assertThatThrownBy(decoder::nextBlock).isInstanceOf(EOFException.class);
+    }
+
+    // Archive segments written before currencies hold version 1 blocks
+    @Test
+    void decodesVersionOneWithoutCurrencies() throws IOException {
+        byte[] encoded = {'C', 'C', 'O', 'L', 1,
+                1,          // rows
+                10,         // id 5
+                0, 1, 2, 1, // no null user ids, one run of user 1
+                1, 1,       // date: one null
+                1, 1,       // amount: one null
+                1, 1, 0,    // category: one null, empty dictionary
+                1, 1,       // description: one null
+                0};
+
+        TransactionColumnarCodec.Decoder decoder = new TransactionColumnarCodec.Decoder(new ByteArrayInputStream(encoded));
+        assertThat(decoder.nextBlock()).containsExactly(new Transaction(5L, 1L, null, null, null, null, null));
+        assertThat(decoder.nextBlock()).isNull();
+    }
+
+    private static byte[] encode(List<Transaction> rows, int blockRows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransactionColumnarCodec.writeHeader(out);
+        TransactionColumnarCodec.Encoder encoder = new TransactionColumnarCodec.Encoder(out, blockRows);
+        for (Transaction row : rows) {
+            encoder.write(row);
+        }
+        encoder.flush();
+        TransactionColumnarCodec.writeTrailer(out);
+        return out.toByteArray();
+    }
+}
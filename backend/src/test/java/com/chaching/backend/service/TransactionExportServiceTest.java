@@ -0,0 +1,154 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.model.ExportFormat;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Small fetches and three readers, so the cursors page and the ranges split
+@SpringBootTest(properties = {"export.fetch-size=2", "export.admin.partitions=3"})
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class TransactionExportServiceTest {
+
+    private static final long USER_ID = 151L;
+    private static final LocalDate CUTOFF = LocalDate.of(2024, 1, 1);
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("archive.dir", Files.createTempDirectory("export-test")::toString);
+    }
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionArchiveService archiveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void mergesArchivedRowsInIdOrderAndImportsAgain() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(add(USER_ID, LocalDate.of(2022, 1 + i, 10), "Old " + i).getId());
+            ids.add(add(USER_ID, LocalDate.of(2025, 1 + i, 10), "New " + i).getId());
+        }
+        ids.add(add(USER_ID, LocalDate.of(2023, 7, 1), "Line one, \"quoted\"\nline two").getId());
+        assertThat(archiveService.archiveUser(USER_ID, CUTOFF)).isEqualTo(6);
+
+        String csv = export(USER_ID, ExportFormat.CSV);
+        assertThat(csvIds(csv)).isEqualTo(ids);
+
+        long copyId = USER_ID + 1;
+        int imported = transactionService.importCsv(copyId, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        assertThat(imported).isEqualTo(ids.size());
+        assertThat(contents(copyId)).isEqualTo(contents(USER_ID));
+    }
+
+    @Test
+    void exportsEveryRowOnceAcrossTheParallelReaders() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (long userId = USER_ID + 10; userId < USER_ID + 14; userId++) {
+            for (int i = 0; i < 6; i++) {
+                ids.add(add(userId, LocalDate.of(i % 2 == 0 ? 2022 : 2025, 1 + i, 1), "Row " + i).getId());
+            }
+            archiveService.archiveUser(userId, CUTOFF);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportAll(ExportFormat.NDJSON, () -> out);
+        List<Long> exported = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            exported.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertThat(exported).doesNotHaveDuplicates().containsAll(ids);
+    }
+
+    @Test
+    void rejectsASecondExportOfAllTransactionsWhileOneRuns() throws Exception {
+        CountDownLatch opened = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> {
+                exportService.exportAll(ExportFormat.CSV, () -> {
+                    opened.countDown();
+                    release.join();
+                    return new ByteArrayOutputStream();
+                });
+                return null;
+            });
+            assertThat(opened.await(1, TimeUnit.MINUTES)).isTrue();
+            assertThatThrownBy(() -> exportService.exportAll(ExportFormat.CSV, ByteArrayOutputStream::new))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .hasMessageContaining("409");
+
+            release.complete(null);
+            first.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String export(long userId, ExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportUser(userId, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // The id is the first column and never quoted; skips the header and the continuation of a multiline field
+    private static List<Long> csvIds(String csv) {
+        List<Long> ids = new ArrayList<>();
+        for (String line : csv.split("\n")) {
+            String first = line.substring(0, Math.max(line.indexOf(','), 0));
+            if (first.matches("\\d+")) {
+                ids.add(Long.parseLong(first));
+            }
+        }
+        return ids;
+    }
+
+    // Everything but the ids, in the order the rows were written
+    private List<String> contents(long userId) {
+        return transactionService.getTransactionsByUser(userId).stream()
+                .sorted(Comparator.comparing(Transaction::getId))
+                .map(t -> t.getDate() + "|" + t.getDescription() + "|" + t.getCategory() + "|" + t.getAmount() + "|" + t.getCurrency())
+                .toList();
+    }
+
+    private Transaction add(long userId, LocalDate date, String description) {
+        return transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(-1_250), description, date, "Books", null));
+    }
+}
@@ -0,0 +1,119 @@
+package com.chaching.backend.service;
+
+import com.chaching.backend.config.DatabaseInitializer;
+import com.chaching.backend.model.Money;
+import com.chaching.backend.model.Transaction;
+import com.chaching.backend.model.TransactionSearchPage;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+class TransactionSearchTest {
+
+    private static final String INDEX = "idx_transaction_user_description_trgm";
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private DatabaseInitializer databaseInitializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ranksSubstringMatchesBeforeFuzzyOnes() {
+        long userId = 501L;
+        add(userId, "Cofee with a typo");
+        add(userId, "Blue Bottle COFFEE");
+        add(userId, "Coffee");
+        add(userId, "Groceries");
+        add(userId + 1, "Someone else's coffee");
+
+        assertThat(descriptions(transactionService.search(userId, " coffee ", null, null)))
+                .containsExactly("Coffee", "Blue Bottle COFFEE", "Cofee with a typo");
+        assertThat(descriptions(transactionService.search(userId, "cofee", null, null)))
+                .startsWith("Cofee with a typo")
+                .contains("Coffee", "Blue Bottle COFFEE");
+    }
+
+    @Test
+    void treatsLikeWildcardsAsText() {
+        long userId = 502L;
+        add(userId, "Order a_b");
+        add(userId, "Order axb");
+        add(userId, "Refund 100%");
+        add(userId, "Refund 1000");
+
+        assertThat(descriptions(transactionService.search(userId, "a_b", null, null))).containsExactly("Order a_b");
+        assertThat(descriptions(transactionService.search(userId, "0%", null, null))).first().isEqualTo("Refund 100%");
+    }
+
+    @Test
+    void pagesThroughEveryMatchOnce() {
+        long userId = 503L;
+        for (int i = 0; i < 5; i++) {
+            add(userId, "Taxi ride " + i);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<Integer> nextPages = new ArrayList<>();
+        Integer page = 0;
+        while (page != null) {
+            TransactionSearchPage result = transactionService.search(userId, "taxi", page, 2);
+            assertThat(result.getItems()).hasSizeLessThanOrEqualTo(2);
+            result.getItems().forEach(transaction -> ids.add(transaction.getId()));
+            page = result.getNextPage();
+            nextPages.add(page);
+        }
+        assertThat(ids).hasSize(5).doesNotHaveDuplicates();
+        assertThat(nextPages).containsExactly(1, 2, null);
+    }
+
+    @Test
+    void rejectsEmptyAndOverlongQueries() {
+        assertThatThrownBy(() -> transactionService.search(504L, "  ", null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("400");
+        assertThatThrownBy(() -> transactionService.search(504L, "x".repeat(101), null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("400");
+    }
+
+    // As a concurrent build that failed part way leaves it
+    @Test
+    void rebuildsAnInvalidSearchIndex() {
+        jdbcTemplate.update("UPDATE pg_index SET indisvalid = false WHERE indexrelid = to_regclass(?)", INDEX);
+        assertThat(indexIsValid()).isFalse();
+
+        databaseInitializer.run(null);
+        assertThat(indexIsValid()).isTrue();
+    }
+
+    private boolean indexIsValid() {
+        return jdbcTemplate.queryForObject("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                Boolean.class, INDEX);
+    }
+
+    private static List<String> descriptions(TransactionSearchPage page) {
+        return page.getItems().stream().map(Transaction::getDescription).toList();
+    }
+
+    private void add(long userId, String description) {
+        transactionService.createTransaction(userId,
+                new Transaction(null, null, Money.ofCents(-100), description, LocalDate.of(2025, 1, 1), "Misc", null));
+    }
+}